@@ -0,0 +1,101 @@
+package com.panels.controls;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Notification of the observers of {@link ThreePaneLayout} through {@link ObserverArray}, as done three times
+ * per transition, with and without a tracer recording a section per observer.
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ObserverDispatchBenchmark {
+
+	/**
+	 * Observer with the shape of {@link ThreePaneLayout.OnStateChangeListener}
+	 */
+	interface Observer {
+
+		void onBeginTransitionState(Object oldState, Object newState);
+	}
+
+	private static final ObserverArray.Notification<Observer, Object> BEGIN_TRANSITION =
+			new ObserverArray.Notification<Observer, Object>() {
+		@Override
+		public void send(Observer observer, Object oldState, Object newState) {
+			observer.onBeginTransitionState(oldState, newState);
+		}
+	};
+
+	private static final Object OLD_STATE = "LEFT_AND_MIDDLE_VISIBLE";
+	private static final Object NEW_STATE = "MIDDLE_AND_RIGHT_VISIBLE";
+
+	@Param({ "1", "8" })
+	public int observerCount;
+
+	@Param({ "false", "true" })
+	public boolean traced;
+
+	private final ObserverArray<Observer> mObservers = new ObserverArray<Observer>(
+			"onBeginTransitionState", "onNewStateVisible", "onTransitionFinished");
+
+	private ObserverArray.SectionTracer mTracer;
+
+	// Updated by the observers and the tracer, so the notifications are not removed as dead code
+	private int mNotifications;
+	private int mSections;
+
+	@Setup
+	public void setUp() {
+
+		for (int i = 0; i < observerCount; i++) {
+			mObservers.add(new Observer() {
+				@Override
+				public void onBeginTransitionState(Object oldState, Object newState) {
+					mNotifications++;
+				}
+			});
+		}
+
+		if (traced) {
+			mTracer = new ObserverArray.SectionTracer() {
+
+				@Override
+				public void beginSection(String name) {
+					mSections += name.length();
+				}
+
+				@Override
+				public void endSection() {
+					mSections--;
+				}
+			};
+		}
+	}
+
+	@Benchmark
+	public int dispatch() {
+
+		mObservers.dispatch(BEGIN_TRANSITION, 0, OLD_STATE, NEW_STATE, mTracer);
+
+		return mNotifications + mSections;
+	}
+}
@@ -0,0 +1,70 @@
+package com.panels.controls;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Work done by {@link ThreePaneLayout} when its width changes (e.g. the device is rotated or the window is
+ * resized): resolving the size class of the width, remapping the requested state to it and creating the
+ * geometry of the new width.
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SizeClassBenchmark {
+
+	// Widths of phones, tablets and desktop windows in both orientations, in dips
+	private static final float[] WIDTHS_DP = { 360, 640, 600, 960, 800, 1280, 1366, 1920 };
+
+	// Widths in pixels of a window that is being resized
+	private static final int[] WIDTHS_PX = { 1080, 1081, 1200, 1533, 1920, 2047, 2560, 2561 };
+
+	private final BreakpointPolicy mPolicy = BreakpointPolicy.DEFAULT;
+
+	private final BreakpointPolicy.SizeClass mSizeClass = mPolicy.resolve(1280);
+
+	private int mTick;
+
+	/**
+	 * Size class of a new width
+	 */
+	@Benchmark
+	public BreakpointPolicy.SizeClass resolve() {
+		return mPolicy.resolve(WIDTHS_DP[mTick++ & 7]);
+	}
+
+	/**
+	 * State shown in a new size class for the state requested by the user in another one
+	 */
+	@Benchmark
+	public int stateForSizeClass() {
+
+		int tick = mTick++;
+
+		return PaneGeometry.stateForSizeClass(tick % PaneGeometry.STATE_COUNT,
+				1 + (tick / PaneGeometry.STATE_COUNT) % PaneGeometry.PANE_COUNT, 1 + tick % PaneGeometry.PANE_COUNT);
+	}
+
+	/**
+	 * Geometry of a width that is not in the cache of the control
+	 */
+	@Benchmark
+	public PaneGeometry geometryForNewWidth() {
+		return new PaneGeometry(WIDTHS_PX[mTick++ & 7], mSizeClass);
+	}
+}
@@ -0,0 +1,93 @@
+package com.panels.controls;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Lookups of {@link PaneGeometry} made by {@link ThreePaneLayout} when a navigation control is touched and on
+ * every frame of a transition. The states and directions change on every invocation, so the lookups can not
+ * be hoisted out of the benchmark loop.
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TransitionBenchmark {
+
+	/**
+	 * Number of panels visible at the same time
+	 */
+	@Param({ "1", "2", "3" })
+	public int maxVisiblePanes;
+
+	private PaneGeometry mGeometry;
+
+	// On screen position and width of the panels when the transition started
+	private final float[] mStartX = new float[PaneGeometry.PANE_COUNT];
+	private final float[] mStartWidth = new float[PaneGeometry.PANE_COUNT];
+
+	private int mTick;
+
+	@Setup
+	public void setUp() {
+
+		mGeometry = new PaneGeometry(1920, new BreakpointPolicy.SizeClass(0, maxVisiblePanes,
+				PaneGeometry.MIN_PANE_WEIGHT, 0.25f, 0.35f));
+
+		for (int i = 0; i < PaneGeometry.PANE_COUNT; i++) {
+			mStartX[i] = mGeometry.getX(PaneGeometry.LEFT_VISIBLE, i);
+			mStartWidth[i] = mGeometry.getWidth(PaneGeometry.LEFT_VISIBLE, i);
+		}
+	}
+
+	/**
+	 * State to which a navigation control moves the control
+	 */
+	@Benchmark
+	public int navigationTarget() {
+
+		int tick = mTick++;
+
+		return PaneGeometry.navigationTarget(tick % PaneGeometry.STATE_COUNT,
+				(tick / PaneGeometry.STATE_COUNT) % PaneGeometry.DIRECTION_COUNT, maxVisiblePanes);
+	}
+
+	/**
+	 * Bounds of the panels in one frame of a translate and clip transition
+	 */
+	@Benchmark
+	public float transitionFrame() {
+
+		int tick = mTick++;
+		int to = tick % PaneGeometry.STATE_COUNT;
+		float fraction = (tick & 0xFF) / 255f;
+
+		float sum = 0;
+
+		for (int i = 0; i < PaneGeometry.PANE_COUNT; i++) {
+
+			float x = mStartX[i] + (mGeometry.getX(to, i) - mStartX[i]) * fraction;
+			float clipWidth = mStartWidth[i] + (mGeometry.getWidth(to, i) - mStartWidth[i]) * fraction;
+
+			sum += x + clipWidth;
+		}
+
+		return sum;
+	}
+}
@@ -0,0 +1,149 @@
+package com.panels.controls;
+
+import java.util.ArrayList;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+/**
+ * <p>Pool of the bitmaps in which {@link ThreePaneLayout} renders the panels for the snapshot transitions.</p>
+ *
+ * <p>The sizes of the bitmaps are rounded up to buckets of {@link #BUCKET_SIZE} pixels, so a bitmap can be
+ * reused for panels of slightly different sizes. The free bitmaps are kept from the least to the most
+ * recently used, and the least recently used ones are recycled when the memory used by the pool, counting
+ * the bitmaps in use, exceeds its limit.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+final class BitmapPool {
+
+	private static final int BUCKET_SIZE = 64;
+
+	private static final int BYTES_PER_PIXEL = 4;
+
+	// Free bitmaps, from the least to the most recently used
+	private final ArrayList<Bitmap> mFreeBitmaps = new ArrayList<Bitmap>();
+
+	private int mMaxBytes;
+	private int mFreeBytes;
+	private int mUsedBytes;
+
+	/**
+	 * @param maxBytes   Maximum memory, in bytes, used by the bitmaps of the pool
+	 */
+	BitmapPool(int maxBytes) {
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Returns a transparent bitmap at least as big as the size received as parameter, reusing a free bitmap
+	 * of the same bucket if there is one.
+	 *
+	 * @param width    Minimum width of the bitmap
+	 * @param height   Minimum height of the bitmap
+	 * @return         The bitmap, or null if it does not fit in the memory limit of the pool
+	 */
+	Bitmap obtain(int width, int height) {
+
+		int bucketWidth = toBucket(width);
+		int bucketHeight = toBucket(height);
+
+		for (int i = mFreeBitmaps.size() - 1; i >= 0; i--) {
+
+			Bitmap bitmap = mFreeBitmaps.get(i);
+
+			if (bitmap.getWidth() == bucketWidth && bitmap.getHeight() == bucketHeight) {
+
+				mFreeBitmaps.remove(i);
+
+				int bytes = getBytes(bitmap);
+				mFreeBytes -= bytes;
+				mUsedBytes += bytes;
+
+				bitmap.eraseColor(Color.TRANSPARENT);
+
+				return bitmap;
+			}
+		}
+
+		int bytes = bucketWidth * bucketHeight * BYTES_PER_PIXEL;
+
+		// Free bitmaps of other sizes are discarded to make room for the new one
+		trimFreeBitmaps(mMaxBytes - mUsedBytes - bytes);
+
+		if (mUsedBytes + mFreeBytes + bytes > mMaxBytes) {
+			return null;
+		}
+
+		Bitmap bitmap;
+
+		try {
+			bitmap = Bitmap.createBitmap(bucketWidth, bucketHeight, Bitmap.Config.ARGB_8888);
+		} catch (OutOfMemoryError e) {
+			trimFreeBitmaps(0);
+			return null;
+		}
+
+		mUsedBytes += getBytes(bitmap);
+
+		return bitmap;
+	}
+
+	/**
+	 * Returns to the pool a bitmap obtained through {@link #obtain(int, int)}
+	 *
+	 * @param bitmap   Bitmap that is no longer used
+	 */
+	void release(Bitmap bitmap) {
+
+		int bytes = getBytes(bitmap);
+
+		mUsedBytes -= bytes;
+		mFreeBitmaps.add(bitmap);
+		mFreeBytes += bytes;
+
+		trimFreeBitmaps(mMaxBytes - mUsedBytes);
+	}
+
+	/**
+	 * Changes the memory limit of the pool, recycling the free bitmaps that do not fit in it
+	 *
+	 * @param maxBytes   Maximum memory, in bytes, used by the bitmaps of the pool
+	 */
+	void setMaxBytes(int maxBytes) {
+
+		mMaxBytes = maxBytes;
+		trimFreeBitmaps(mMaxBytes - mUsedBytes);
+	}
+
+	/**
+	 * Recycles all the free bitmaps
+	 */
+	void clear() {
+		trimFreeBitmaps(0);
+	}
+
+	/**
+	 * Recycles the least recently used free bitmaps until the free bitmaps use at most the given memory
+	 */
+	private void trimFreeBitmaps(int maxFreeBytes) {
+
+		while (mFreeBytes > maxFreeBytes && !mFreeBitmaps.isEmpty()) {
+
+			Bitmap bitmap = mFreeBitmaps.remove(0);
+
+			mFreeBytes -= getBytes(bitmap);
+			bitmap.recycle();
+		}
+	}
+
+	private static int toBucket(int size) {
+		return (size + BUCKET_SIZE - 1) / BUCKET_SIZE * BUCKET_SIZE;
+	}
+
+	private static int getBytes(Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+}
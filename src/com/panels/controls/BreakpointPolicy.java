@@ -0,0 +1,148 @@
+package com.panels.controls;
+
+/**
+ * <p>Decides how many panels of a {@link ThreePaneLayout} can be visible at the same time, and how the width
+ * of the control is split between them, from the width of the control in density independent pixels.</p>
+ *
+ * <p>The policy is a list of {@link SizeClass}, each one applied from a minimum width up to the minimum width
+ * of the next one. The default policy shows one panel below 640dp (phones in portrait, 7" tablets in
+ * portrait), two panels from 640dp (phones in landscape, tablets) and the three panels from 1280dp (10" and
+ * bigger tablets in landscape, desktop windows).</p>
+ *
+ * <p>Like {@link PaneGeometry}, this class does not depend on the Android framework.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public final class BreakpointPolicy {
+
+	/**
+	 * Range of widths in which the panels are distributed in the same way. The size classes are immutable,
+	 * so the same policy can be shared by several controls.
+	 */
+	public static final class SizeClass {
+
+		private final int mMinWidthDp;
+		private final int mMaxVisiblePanes;
+		private final float mNarrowPaneWeight;
+		private final float mLeftPaneWeight;
+		private final float mMiddlePaneWeight;
+
+		/**
+		 * Creates a size class that shows one or two panels at the same time
+		 *
+		 * @param minWidthDp         Minimum width of the control, in dips, to which the size class applies
+		 * @param maxVisiblePanes    1 or 2
+		 * @param narrowPaneWeight   Fraction of the width assigned to the narrow panel when two panels are
+		 *                           visible
+		 */
+		public SizeClass(int minWidthDp, int maxVisiblePanes, float narrowPaneWeight) {
+			this(minWidthDp, maxVisiblePanes, narrowPaneWeight, 0f, 0f);
+		}
+
+		/**
+		 * Creates a size class that shows up to three panels at the same time
+		 *
+		 * @param minWidthDp         Minimum width of the control, in dips, to which the size class applies
+		 * @param maxVisiblePanes    1, 2 or 3
+		 * @param narrowPaneWeight   Fraction of the width assigned to the narrow panel when two panels are
+		 *                           visible
+		 * @param leftPaneWeight     Fraction of the width assigned to the left panel when the three panels
+		 *                           are visible
+		 * @param middlePaneWeight   Fraction of the width assigned to the middle panel when the three panels
+		 *                           are visible. The right panel takes the rest
+		 */
+		public SizeClass(int minWidthDp, int maxVisiblePanes, float narrowPaneWeight,
+				float leftPaneWeight, float middlePaneWeight) {
+
+			if (maxVisiblePanes < 1 || maxVisiblePanes > PaneGeometry.PANE_COUNT) {
+				throw new IllegalArgumentException("Invalid number of visible panels: " + maxVisiblePanes);
+			}
+
+			if (maxVisiblePanes == 3 && (leftPaneWeight <= 0 || middlePaneWeight <= 0
+					|| leftPaneWeight + middlePaneWeight >= 1)) {
+				throw new IllegalArgumentException("Invalid weights of the three panels: " + leftPaneWeight
+						+ ", " + middlePaneWeight);
+			}
+
+			mMinWidthDp = minWidthDp;
+			mMaxVisiblePanes = maxVisiblePanes;
+			mNarrowPaneWeight = narrowPaneWeight;
+			mLeftPaneWeight = leftPaneWeight;
+			mMiddlePaneWeight = middlePaneWeight;
+		}
+
+		public int getMinWidthDp() {
+			return mMinWidthDp;
+		}
+
+		public int getMaxVisiblePanes() {
+			return mMaxVisiblePanes;
+		}
+
+		public float getNarrowPaneWeight() {
+			return mNarrowPaneWeight;
+		}
+
+		public float getLeftPaneWeight() {
+			return mLeftPaneWeight;
+		}
+
+		public float getMiddlePaneWeight() {
+			return mMiddlePaneWeight;
+		}
+
+		@Override
+		public String toString() {
+			return "SizeClass[minWidthDp=" + mMinWidthDp + ", maxVisiblePanes=" + mMaxVisiblePanes + "]";
+		}
+	}
+
+	/**
+	 * Policy used by {@link ThreePaneLayout} when no other one is set
+	 */
+	public static final BreakpointPolicy DEFAULT = new BreakpointPolicy(
+			new SizeClass(0, 1, PaneGeometry.MIN_PANE_WEIGHT),
+			new SizeClass(640, 2, PaneGeometry.MIN_PANE_WEIGHT),
+			new SizeClass(1280, 3, PaneGeometry.MIN_PANE_WEIGHT, 0.25f, 0.35f));
+
+	private final SizeClass[] mSizeClasses;
+
+	/**
+	 * @param sizeClasses   Size classes of the policy, sorted by minimum width. The first one must start
+	 *                      at 0dp, so every width has a size class
+	 */
+	public BreakpointPolicy(SizeClass... sizeClasses) {
+
+		if (sizeClasses.length == 0 || sizeClasses[0].getMinWidthDp() != 0) {
+			throw new IllegalArgumentException("The first size class must start at 0dp");
+		}
+
+		for (int i = 1; i < sizeClasses.length; i++) {
+
+			if (sizeClasses[i].getMinWidthDp() <= sizeClasses[i - 1].getMinWidthDp()) {
+				throw new IllegalArgumentException("The size classes must be sorted by minimum width");
+			}
+		}
+
+		mSizeClasses = sizeClasses.clone();
+	}
+
+	/**
+	 * Returns the size class that applies to the width received as parameter
+	 *
+	 * @param widthDp   Width of the control in dips
+	 */
+	public SizeClass resolve(float widthDp) {
+
+		for (int i = mSizeClasses.length - 1; i > 0; i--) {
+
+			if (widthDp >= mSizeClasses[i].getMinWidthDp()) {
+				return mSizeClasses[i];
+			}
+		}
+
+		return mSizeClasses[0];
+	}
+
+}
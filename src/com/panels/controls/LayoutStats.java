@@ -0,0 +1,84 @@
+package com.panels.controls;
+
+/**
+ * <p>Snapshot of the counters that a {@link ThreePaneLayout} keeps since it was created: layout requests,
+ * measure and layout passes, and visibility state transitions.</p>
+ *
+ * <p>The snapshot does not change once it has been returned by {@link ThreePaneLayout#getStats()}, so it
+ * can be kept and compared with a later one.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public final class LayoutStats {
+
+	int mRequestLayoutCount;
+	int mMeasureCount;
+	int mLayoutCount;
+
+	int mTransitionsStarted;
+	int mTransitionsCompleted;
+	int mTransitionsDropped;
+
+	long mTotalTransitionTimeNanos;
+
+	LayoutStats() {/**/}
+
+	/**
+	 * Number of calls to {@link ThreePaneLayout#requestLayout()}
+	 */
+	public int getRequestLayoutCount() {
+		return mRequestLayoutCount;
+	}
+
+	/**
+	 * Number of measure passes of the control
+	 */
+	public int getMeasureCount() {
+		return mMeasureCount;
+	}
+
+	/**
+	 * Number of layout passes of the control
+	 */
+	public int getLayoutCount() {
+		return mLayoutCount;
+	}
+
+	/**
+	 * Number of transitions that have started to animate the panels
+	 */
+	public int getTransitionsStarted() {
+		return mTransitionsStarted;
+	}
+
+	/**
+	 * Number of transitions whose animation has finished
+	 */
+	public int getTransitionsCompleted() {
+		return mTransitionsCompleted;
+	}
+
+	/**
+	 * Number of transitions retargeted or aborted before finishing, plus the state requests rejected
+	 * by the control
+	 */
+	public int getTransitionsDropped() {
+		return mTransitionsDropped;
+	}
+
+	/**
+	 * Time spent animating the completed transitions, in nanoseconds
+	 */
+	public long getTotalTransitionTimeNanos() {
+		return mTotalTransitionTimeNanos;
+	}
+
+	@Override
+	public String toString() {
+		return "LayoutStats[requestLayouts=" + mRequestLayoutCount + ", measures=" + mMeasureCount
+				+ ", layouts=" + mLayoutCount + ", transitionsStarted=" + mTransitionsStarted
+				+ ", transitionsCompleted=" + mTransitionsCompleted + ", transitionsDropped=" + mTransitionsDropped
+				+ ", transitionTimeMs=" + mTotalTransitionTimeNanos / 1000000f + "]";
+	}
+}
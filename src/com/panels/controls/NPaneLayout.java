@@ -0,0 +1,673 @@
+package com.panels.controls;
+
+import java.util.ArrayList;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.content.Context;
+import android.graphics.Canvas;
+import android.util.AttributeSet;
+import android.util.SparseArray;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * <p>Control to display any number of logical panels with a maximum of k simultaneously visible. It is the
+ * generalization of {@link ThreePaneLayout} for navigations with more levels (e.g. category, project, task,
+ * subtask and attachment).</p>
+ *
+ * <p>The views of the panels are supplied by an {@link Adapter}. Only the panels inside the control, or that
+ * cross it during a transition, have a view. When a panel leaves the control its view is returned to a small
+ * pool and reused for the next panel of the same type, so the number of views, and therefore the cost of
+ * measure, layout and draw, does not depend on how deep the user navigates.</p>
+ *
+ * <p>The visible panels are contiguous. The last visible panel is the widest one and the others share
+ * the remaining width, like in {@link ThreePaneLayout}.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class NPaneLayout extends ViewGroup {
+
+	/**
+	 * Maximum number of views of each type kept in the pool
+	 */
+	private static final int MAX_POOLED_VIEWS_PER_TYPE = 2;
+
+	/**
+	 * Supplies the views of the panels of the control
+	 */
+	public static abstract class Adapter {
+
+		/**
+		 * Returns the number of logical panels
+		 */
+		public abstract int getPaneCount();
+
+		/**
+		 * Returns the type of view of the panel in the position received as parameter. Only views of
+		 * the same type are reused between panels.
+		 *
+		 * @param position   Position of the panel
+		 */
+		public int getPaneViewType(int position) {
+			return 0;
+		}
+
+		/**
+		 * Creates a new view for the given type of panel
+		 *
+		 * @param parent     The control
+		 * @param viewType   Type of view returned by {@link #getPaneViewType(int)}
+		 */
+		public abstract View createPaneView(ViewGroup parent, int viewType);
+
+		/**
+		 * Shows the content of a panel in a new or recycled view
+		 *
+		 * @param view       View of the type of the panel
+		 * @param position   Position of the panel
+		 */
+		public abstract void bindPaneView(View view, int position);
+	}
+
+	/**
+	 * Interface to be implemented by clients that require to be notified when the visible panels change
+	 */
+	public interface OnPanesChangeListener {
+
+		/**
+		 * Method invoked by the control once the panels have reached their final position
+		 *
+		 * @param firstVisiblePane    Position of the leftmost visible panel
+		 * @param visiblePaneCount    Number of visible panels
+		 */
+		void onPanesVisible(int firstVisiblePane, int visiblePaneCount);
+	}
+
+	/**
+	 * Placement of a panel view inside the control
+	 */
+	public static class LayoutParams extends ViewGroup.LayoutParams {
+
+		int viewType;
+
+		// Left edge and width assigned by the layout
+		int left;
+		int paneWidth;
+
+		// Bounds of the panel at the beginning and the end of the running transition
+		float startX;
+		float startWidth;
+		int endX;
+		int endWidth;
+
+		// Width to which the panel is clipped while a transition is running
+		float clipWidth;
+
+		// Measure spec used the last time the panel was measured
+		int widthSpec;
+		int heightSpec;
+
+		public LayoutParams() {
+			super(MATCH_PARENT, MATCH_PARENT);
+		}
+	}
+
+	private Adapter mAdapter;
+
+	private int mMaxVisiblePanes = 2;
+
+	// Current state: leftmost visible panel and number of visible panels. If a transition is running,
+	// it is the state that the transition is moving to
+	private int mFirstVisiblePane;
+	private int mVisiblePaneCount = 1;
+
+	// Views of the panels that have a view, by position
+	private final SparseArray<View> mActivePanes = new SparseArray<View>();
+
+	// Views that are not assigned to any panel, by type
+	private final SparseArray<ArrayList<View>> mRecycledPanes = new SparseArray<ArrayList<View>>();
+
+	private ValueAnimator mTransitionAnimator;
+	private boolean mCancellingTransition;
+	private boolean mClipPanes;
+
+	private OnPanesChangeListener mPanesChangeListener;
+
+	public NPaneLayout(Context context) {
+		super(context);
+	}
+
+	public NPaneLayout(Context context, AttributeSet attrs) {
+		super(context, attrs);
+	}
+
+	public NPaneLayout(Context context, AttributeSet attrs, int defStyle) {
+		super(context, attrs, defStyle);
+	}
+
+	/**
+	 * Sets the adapter that supplies the views of the panels. The control shows the first panel.
+	 *
+	 * @param adapter   Adapter of the panels
+	 */
+	public void setAdapter(Adapter adapter) {
+
+		cancelTransition();
+
+		// The views of the previous adapter can not be reused
+		removeAllViews();
+		mActivePanes.clear();
+		mRecycledPanes.clear();
+
+		mAdapter = adapter;
+		mFirstVisiblePane = 0;
+		mVisiblePaneCount = 1;
+
+		placePanes();
+	}
+
+	public Adapter getAdapter() {
+		return mAdapter;
+	}
+
+	/**
+	 * Sets the maximum number of panels visible at the same time. The control shows the current panels
+	 * again without animation.
+	 *
+	 * @param maxVisiblePanes   Number of panels, 1 or more
+	 */
+	public void setMaxVisiblePanes(int maxVisiblePanes) {
+
+		if (maxVisiblePanes < 1) {
+			throw new IllegalArgumentException("NPaneLayout requires at least one visible panel");
+		}
+
+		mMaxVisiblePanes = maxVisiblePanes;
+
+		if (mVisiblePaneCount > maxVisiblePanes) {
+			showPanes(mFirstVisiblePane + mVisiblePaneCount - maxVisiblePanes, maxVisiblePanes, false);
+		}
+	}
+
+	public int getMaxVisiblePanes() {
+		return mMaxVisiblePanes;
+	}
+
+	public int getFirstVisiblePane() {
+		return mFirstVisiblePane;
+	}
+
+	public int getVisiblePaneCount() {
+		return mVisiblePaneCount;
+	}
+
+	/**
+	 * Shows the panel received as parameter as the widest one, together with as many of the previous
+	 * panels as can be visible. Used to drill down into a panel or to go back to it.
+	 *
+	 * @param position   Position of the panel
+	 * @param animate    <i>true</i> to move the panels with an animation
+	 */
+	public void showPane(int position, boolean animate) {
+
+		int count = Math.min(position + 1, mMaxVisiblePanes);
+
+		showPanes(position - count + 1, count, animate);
+	}
+
+	/**
+	 * Shows a range of panels. If a transition is running, the new one starts from the current
+	 * position of the panels.
+	 *
+	 * @param firstVisiblePane   Position of the leftmost visible panel
+	 * @param visiblePaneCount   Number of visible panels, between 1 and the maximum number of visible panels
+	 * @param animate            <i>true</i> to move the panels with an animation
+	 */
+	public void showPanes(int firstVisiblePane, int visiblePaneCount, boolean animate) {
+
+		if (mAdapter == null) {
+			throw new IllegalStateException("NPaneLayout requires an adapter to show panels");
+		}
+
+		if (visiblePaneCount < 1 || visiblePaneCount > mMaxVisiblePanes || firstVisiblePane < 0
+				|| firstVisiblePane + visiblePaneCount > mAdapter.getPaneCount()) {
+			throw new IndexOutOfBoundsException("Invalid range of panels: " + firstVisiblePane + ", " + visiblePaneCount);
+		}
+
+		if (firstVisiblePane == mFirstVisiblePane && visiblePaneCount == mVisiblePaneCount) {
+			return;
+		}
+
+		int previousFirst = mFirstVisiblePane;
+		int previousCount = mVisiblePaneCount;
+
+		mFirstVisiblePane = firstVisiblePane;
+		mVisiblePaneCount = visiblePaneCount;
+
+		if (animate && getWidth() > 0) {
+			animateTransition(previousFirst, previousCount);
+		} else {
+			cancelTransition();
+			placePanes();
+		}
+	}
+
+	/**
+	 * Shows again the content of a panel if it has a view
+	 *
+	 * @param position   Position of the panel
+	 */
+	public void notifyPaneChanged(int position) {
+
+		View view = mActivePanes.get(position);
+
+		if (view != null) {
+			mAdapter.bindPaneView(view, position);
+		}
+	}
+
+	/**
+	 * Returns the view of a panel, or null if the panel is not inside the control
+	 *
+	 * @param position   Position of the panel
+	 */
+	public View getPaneView(int position) {
+		return mActivePanes.get(position);
+	}
+
+	public void setOnPanesChangeListener(OnPanesChangeListener listener) {
+		mPanesChangeListener = listener;
+	}
+
+	/**
+	 * Returns the width of the narrow panels when the given number of panels is visible
+	 */
+	private int getNarrowWidth(int count) {
+
+		int width = getWidth();
+
+		return count <= 1 ? width : (int) (width * PaneGeometry.MIN_PANE_WEIGHT / (count - 1));
+	}
+
+	/**
+	 * Returns the width of a panel when the panels in the given range are visible
+	 *
+	 * @param first      Position of the leftmost visible panel
+	 * @param count      Number of visible panels
+	 * @param position   Position of the panel
+	 */
+	private int getPaneWidth(int first, int count, int position) {
+
+		int narrowWidth = getNarrowWidth(count);
+
+		// The panels on the left of the visible ones keep the narrow width, the ones on the right the wide width
+		return position < first + count - 1 ? narrowWidth : getWidth() - narrowWidth * (count - 1);
+	}
+
+	/**
+	 * Returns the position on the x axis of a panel when the panels in the given range are visible
+	 *
+	 * @param first      Position of the leftmost visible panel
+	 * @param count      Number of visible panels
+	 * @param position   Position of the panel
+	 */
+	private int getPaneX(int first, int count, int position) {
+
+		int last = first + count - 1;
+
+		if (position <= last) {
+			return (position - first) * getNarrowWidth(count);
+		}
+
+		return getWidth() + (position - last - 1) * getPaneWidth(first, count, position);
+	}
+
+	/**
+	 * Places the panels of the current state without animation, recycling the views of the panels
+	 * that are outside the control
+	 */
+	private void placePanes() {
+
+		if (mAdapter == null) {
+			return;
+		}
+
+		int last = mFirstVisiblePane + mVisiblePaneCount - 1;
+
+		recyclePanesOutside(mFirstVisiblePane, last);
+
+		for (int position = mFirstVisiblePane; position <= last; position++) {
+
+			LayoutParams params = (LayoutParams) obtainPaneView(position).getLayoutParams();
+
+			params.left = getPaneX(mFirstVisiblePane, mVisiblePaneCount, position);
+			params.paneWidth = getPaneWidth(mFirstVisiblePane, mVisiblePaneCount, position);
+		}
+
+		requestLayout();
+
+		if (mPanesChangeListener != null) {
+			mPanesChangeListener.onPanesVisible(mFirstVisiblePane, mVisiblePaneCount);
+		}
+	}
+
+	/**
+	 * Moves the panels from their current position to the current state. The panels that cross the control
+	 * are laid out once in their final position, the frames only update their translation and clip width.
+	 *
+	 * <p>Only the panels of the current state get a new view, so a transition between contiguous states
+	 * uses the visible panels plus one. When the control jumps to panels that are not next to the ones on
+	 * screen, the panels between them are skipped: the panels that leave end next to the new ones, and the
+	 * new ones start next to the ones that leave, as if the skipped panels did not exist.</p>
+	 *
+	 * @param previousFirst   Position of the leftmost visible panel before the transition
+	 * @param previousCount   Number of visible panels before the transition
+	 */
+	private void animateTransition(int previousFirst, int previousCount) {
+
+		// Starting point: the current on screen bounds of the panels with a view
+		for (int i = 0; i < mActivePanes.size(); i++) {
+
+			View view = mActivePanes.valueAt(i);
+			LayoutParams params = (LayoutParams) view.getLayoutParams();
+
+			params.startX = params.left + view.getTranslationX();
+			params.startWidth = mClipPanes ? params.clipWidth : params.paneWidth;
+		}
+
+		cancelTransition();
+
+		int first = mFirstVisiblePane;
+		int last = first + mVisiblePaneCount - 1;
+
+		// Number of panels skipped by a jump, positive when moving to the right. The panels that have a
+		// view are placed as if they were that many positions closer to the new ones
+		int skipped = 0;
+
+		if (mActivePanes.size() > 0) {
+
+			int firstActive = mActivePanes.keyAt(0);
+			int lastActive = mActivePanes.keyAt(mActivePanes.size() - 1);
+
+			if (lastActive < first - 1) {
+				skipped = first - 1 - lastActive;
+			} else if (firstActive > last + 1) {
+				skipped = last + 1 - firstActive;
+			}
+		}
+
+		// The panels that have a view move to their position in the new state
+		for (int i = 0; i < mActivePanes.size(); i++) {
+
+			int position = mActivePanes.keyAt(i);
+			boolean visible = position >= first && position <= last;
+
+			placeTransitionEnd(mActivePanes.valueAt(i), visible ? position : position + skipped);
+		}
+
+		// The visible panels without a view start from the position that they had in the previous state
+		for (int position = first; position <= last; position++) {
+
+			if (mActivePanes.get(position) != null) {
+				continue;
+			}
+
+			View view = obtainPaneView(position);
+			LayoutParams params = (LayoutParams) view.getLayoutParams();
+
+			params.startX = getPaneX(previousFirst, previousCount, position - skipped);
+			params.startWidth = getPaneWidth(previousFirst, previousCount, position - skipped);
+
+			placeTransitionEnd(view, position);
+		}
+
+		requestLayout();
+
+		mClipPanes = true;
+		applyTransitionFrame(0f);
+
+		if (mTransitionAnimator == null) {
+
+			mTransitionAnimator = ValueAnimator.ofFloat(0f, 1f);
+			mTransitionAnimator.setDuration(ThreePaneLayout.ANIMATION_DURATION);
+
+			mTransitionAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+				@Override
+				public void onAnimationUpdate(ValueAnimator animation) {
+					applyTransitionFrame(animation.getAnimatedFraction());
+				}
+			});
+
+			mTransitionAnimator.addListener(new AnimatorListenerAdapter() {
+				@Override
+				public void onAnimationEnd(Animator animation) {
+
+					if (!mCancellingTransition) {
+						mClipPanes = false;
+						resetTranslations();
+						placePanes();
+					}
+				}
+			});
+		}
+
+		mTransitionAnimator.start();
+	}
+
+	/**
+	 * Lays out a panel in its position at the end of the running transition, with a width that covers
+	 * its width at the beginning and at the end of the transition
+	 *
+	 * @param view       View of the panel
+	 * @param position   Position of the panel, or the position in which it is placed if the transition skips panels
+	 */
+	private void placeTransitionEnd(View view, int position) {
+
+		LayoutParams params = (LayoutParams) view.getLayoutParams();
+
+		params.endX = getPaneX(mFirstVisiblePane, mVisiblePaneCount, position);
+		params.endWidth = getPaneWidth(mFirstVisiblePane, mVisiblePaneCount, position);
+
+		params.left = params.endX;
+		params.paneWidth = Math.max((int) Math.ceil(params.startWidth), params.endWidth);
+	}
+
+	/**
+	 * Moves the panels that have a view between the bounds stored in their layout params
+	 *
+	 * @param fraction   Elapsed fraction of the transition
+	 */
+	private void applyTransitionFrame(float fraction) {
+
+		for (int i = 0; i < mActivePanes.size(); i++) {
+
+			View view = mActivePanes.valueAt(i);
+			LayoutParams params = (LayoutParams) view.getLayoutParams();
+
+			PaneSupport.translate(view, params.left, PaneSupport.interpolate(params.startX, params.endX, fraction));
+			params.clipWidth = PaneSupport.interpolate(params.startWidth, params.endWidth, fraction);
+		}
+
+		invalidate();
+	}
+
+	/**
+	 * Cancels the running transition leaving the panels in their current position
+	 */
+	private void cancelTransition() {
+
+		if (mTransitionAnimator != null && mTransitionAnimator.isRunning()) {
+
+			mCancellingTransition = true;
+			mTransitionAnimator.cancel();
+			mCancellingTransition = false;
+		}
+	}
+
+	private void resetTranslations() {
+
+		for (int i = 0; i < mActivePanes.size(); i++) {
+			mActivePanes.valueAt(i).setTranslationX(0);
+		}
+	}
+
+	/**
+	 * Returns the view of a panel. If the panel has no view, a view of its type is taken from the pool
+	 * or created by the adapter, bound to the panel and added to the control.
+	 *
+	 * @param position   Position of the panel
+	 */
+	private View obtainPaneView(int position) {
+
+		View view = mActivePanes.get(position);
+
+		if (view != null) {
+			return view;
+		}
+
+		int viewType = mAdapter.getPaneViewType(position);
+		ArrayList<View> recycled = mRecycledPanes.get(viewType);
+
+		if (recycled != null && !recycled.isEmpty()) {
+			view = recycled.remove(recycled.size() - 1);
+		} else {
+			view = mAdapter.createPaneView(this, viewType);
+		}
+
+		LayoutParams params = new LayoutParams();
+		params.viewType = viewType;
+
+		mAdapter.bindPaneView(view, position);
+
+		view.setTranslationX(0);
+		addViewInLayout(view, -1, params, true);
+		mActivePanes.put(position, view);
+
+		return view;
+	}
+
+	/**
+	 * Returns to the pool the views of the panels outside the given range
+	 *
+	 * @param first   Position of the first panel that keeps its view
+	 * @param last    Position of the last panel that keeps its view
+	 */
+	private void recyclePanesOutside(int first, int last) {
+
+		for (int i = mActivePanes.size() - 1; i >= 0; i--) {
+
+			int position = mActivePanes.keyAt(i);
+
+			if (position >= first && position <= last) {
+				continue;
+			}
+
+			View view = mActivePanes.valueAt(i);
+			mActivePanes.removeAt(i);
+			removeViewInLayout(view);
+
+			int viewType = ((LayoutParams) view.getLayoutParams()).viewType;
+			ArrayList<View> recycled = mRecycledPanes.get(viewType);
+
+			if (recycled == null) {
+				recycled = new ArrayList<View>(MAX_POOLED_VIEWS_PER_TYPE);
+				mRecycledPanes.put(viewType, recycled);
+			}
+
+			// When the pool is full the view is discarded
+			if (recycled.size() < MAX_POOLED_VIEWS_PER_TYPE) {
+				recycled.add(view);
+			}
+		}
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+
+		// The bounds of the panels depend on the width of the control
+		if (w != oldw) {
+
+			cancelTransition();
+			mClipPanes = false;
+			resetTranslations();
+			placePanes();
+		}
+	}
+
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+
+		int height = MeasureSpec.getSize(heightMeasureSpec);
+
+		setMeasuredDimension(MeasureSpec.getSize(widthMeasureSpec), height);
+
+		int heightSpec = MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY);
+
+		for (int i = 0; i < getChildCount(); i++) {
+
+			View child = getChildAt(i);
+			LayoutParams params = (LayoutParams) child.getLayoutParams();
+
+			int widthSpec = MeasureSpec.makeMeasureSpec(params.paneWidth, MeasureSpec.EXACTLY);
+
+			if (PaneSupport.needsMeasure(child, widthSpec, heightSpec, params.widthSpec, params.heightSpec, true)) {
+
+				child.measure(widthSpec, heightSpec);
+
+				params.widthSpec = widthSpec;
+				params.heightSpec = heightSpec;
+			}
+		}
+	}
+
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+
+		for (int i = 0; i < getChildCount(); i++) {
+
+			View child = getChildAt(i);
+			int left = ((LayoutParams) child.getLayoutParams()).left;
+
+			child.layout(left, 0, left + child.getMeasuredWidth(), child.getMeasuredHeight());
+		}
+	}
+
+	@Override
+	public boolean shouldDelayChildPressedState() {
+		return false;
+	}
+
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+
+		if (!mClipPanes) {
+			return super.drawChild(canvas, child, drawingTime);
+		}
+
+		int saveCount = PaneSupport.clip(canvas, child, ((LayoutParams) child.getLayoutParams()).clipWidth);
+		boolean result = super.drawChild(canvas, child, drawingTime);
+		canvas.restoreToCount(saveCount);
+
+		return result;
+	}
+
+	@Override
+	protected boolean checkLayoutParams(ViewGroup.LayoutParams params) {
+		return params instanceof LayoutParams;
+	}
+
+	@Override
+	protected LayoutParams generateDefaultLayoutParams() {
+		return new LayoutParams();
+	}
+
+	@Override
+	protected LayoutParams generateLayoutParams(ViewGroup.LayoutParams params) {
+		return new LayoutParams();
+	}
+
+}
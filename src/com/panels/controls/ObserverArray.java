@@ -0,0 +1,140 @@
+package com.panels.controls;
+
+/**
+ * <p>Observers of a control, notified by index so notifying them does not allocate. The array grows when
+ * it is full. An observer can add new observers while it is notified, the new ones are notified too.</p>
+ *
+ * <p>The names of the trace sections of the notifications of each observer are built when it is added,
+ * from the simple name of its class and the names of the methods of the observer interface, so tracing
+ * the notifications does not build strings either.</p>
+ *
+ * <p>Like {@link PaneGeometry}, this class does not depend on the Android framework.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+final class ObserverArray<L> {
+
+	/**
+	 * Invokes one method of the observers with two arguments. The notifications do not keep state, so a
+	 * single instance can be shared by every control.
+	 */
+	interface Notification<L, A> {
+
+		/**
+		 * @param observer   Observer notified
+		 * @param first      First argument of the method
+		 * @param second     Second argument of the method
+		 */
+		void send(L observer, A first, A second);
+	}
+
+	/**
+	 * Records the sections of the notifications, see {@link TransitionTracer}
+	 */
+	interface SectionTracer {
+
+		void beginSection(String name);
+
+		void endSection();
+	}
+
+	private static final int INITIAL_CAPACITY = 4;
+
+	// Names of the methods of the observer interface, indexed by the method argument of dispatch()
+	private final String[] mMethods;
+
+	private Object[] mObservers = new Object[INITIAL_CAPACITY];
+
+	// Names of the trace sections of the notifications of each observer, by observer and method
+	private String[][] mSections = new String[INITIAL_CAPACITY][];
+
+	private int mCount;
+
+	/**
+	 * @param methods   Names of the methods of the observer interface
+	 */
+	ObserverArray(String... methods) {
+		mMethods = methods;
+	}
+
+	void add(L observer) {
+
+		if (mCount == mObservers.length) {
+
+			Object[] observers = new Object[mCount * 2];
+			System.arraycopy(mObservers, 0, observers, 0, mCount);
+
+			String[][] sections = new String[mCount * 2][];
+			System.arraycopy(mSections, 0, sections, 0, mCount);
+
+			mObservers = observers;
+			mSections = sections;
+		}
+
+		String[] sections = new String[mMethods.length];
+		String prefix = observer.getClass().getSimpleName() + ".";
+
+		for (int i = 0; i < sections.length; i++) {
+			sections[i] = prefix + mMethods[i];
+		}
+
+		mSections[mCount] = sections;
+		mObservers[mCount++] = observer;
+	}
+
+	/**
+	 * Removes the first occurrence of the observer received as parameter
+	 *
+	 * @return <i>true</i> if the observer was in the array
+	 */
+	boolean remove(L observer) {
+
+		for (int i = 0; i < mCount; i++) {
+
+			if (mObservers[i] == observer) {
+
+				System.arraycopy(mObservers, i + 1, mObservers, i, mCount - i - 1);
+				System.arraycopy(mSections, i + 1, mSections, i, mCount - i - 1);
+
+				mCount--;
+				mObservers[mCount] = null;
+				mSections[mCount] = null;
+
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	int size() {
+		return mCount;
+	}
+
+	/**
+	 * Sends a notification to every observer
+	 *
+	 * @param notification   Notification sent
+	 * @param method         Position of the method invoked by the notification in the names of the methods
+	 * @param first          First argument of the method
+	 * @param second         Second argument of the method
+	 * @param tracer         Records a section for each observer, or null
+	 */
+	@SuppressWarnings("unchecked")
+	<A> void dispatch(Notification<L, A> notification, int method, A first, A second, SectionTracer tracer) {
+
+		for (int i = 0; i < mCount; i++) {
+
+			if (tracer != null) {
+				tracer.beginSection(mSections[i][method]);
+			}
+
+			notification.send((L) mObservers[i], first, second);
+
+			if (tracer != null) {
+				tracer.endSection();
+			}
+		}
+	}
+}
@@ -0,0 +1,449 @@
+package com.panels.controls;
+
+/**
+ * <p>Calculates the position and the width of the three panels of a {@link ThreePaneLayout} for every
+ * visibility state. This class does not depend on the Android framework, so it can be used and measured
+ * on a plain JVM.</p>
+ *
+ * <p>The position and the width of every panel in every visibility state are a combination of a few widths:
+ * the width of the control, the widths of the narrow and wide panels, and the widths of the left and middle
+ * panels when the three panels are visible. The coefficients of these combinations do not depend on the
+ * width of the control, so they are precomputed in a flat table when the class is loaded. An instance only
+ * calculates those widths, and a window resize does not need to build the bounds of every state again.</p>
+ *
+ * <p>The states are identified by the ordinal of {@link ThreePaneLayout.VisibilityState} and the panels by
+ * their position ({@link #LEFT_PANE}, {@link #MIDDLE_PANE} and {@link #RIGHT_PANE}).</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public final class PaneGeometry {
+
+	/**
+	 * Fraction of the container width assigned by default to the narrow panel when two panels are visible
+	 */
+	public static final float MIN_PANE_WEIGHT = 0.35f;
+
+	public static final int STATE_COUNT = 6;
+	public static final int PANE_COUNT  = 3;
+
+	// Visibility states, in the same order than ThreePaneLayout.VisibilityState
+	public static final int LEFT_VISIBLE             = 0;
+	public static final int LEFT_AND_MIDDLE_VISIBLE  = 1;
+	public static final int MIDDLE_VISIBLE           = 2;
+	public static final int MIDDLE_AND_RIGHT_VISIBLE = 3;
+	public static final int RIGHT_VISIBLE            = 4;
+	public static final int ALL_VISIBLE              = 5;
+
+	// Panels
+	public static final int LEFT_PANE   = 0;
+	public static final int MIDDLE_PANE = 1;
+	public static final int RIGHT_PANE  = 2;
+
+	// Navigation controls, in the same order than ThreePaneLayout.Direction
+	public static final int DIRECTION_COUNT = 4;
+
+	public static final int NAVIGATE_LEFT_PANE            = 0;
+	public static final int NAVIGATE_MIDDLE_PANE_TO_LEFT  = 1;
+	public static final int NAVIGATE_MIDDLE_PANE_TO_RIGHT = 2;
+	public static final int NAVIGATE_RIGHT_PANE           = 3;
+
+	// Widths from which the bounds of the panels are calculated
+	private static final int UNIT_CONTAINER    = 0;
+	private static final int UNIT_MIN_PANE     = 1;
+	private static final int UNIT_MAX_PANE     = 2;
+	private static final int UNIT_THREE_LEFT   = 3;
+	private static final int UNIT_THREE_MIDDLE = 4;
+	private static final int UNIT_COUNT        = 5;
+
+	// Coefficients of the widths for the pairs (x, width) of each panel in each state, when up to two panels
+	// and when the three panels can be visible
+	private static final int[] TWO_PANE_BOUNDS = computeBoundsTable(false);
+	private static final int[] THREE_PANE_BOUNDS = computeBoundsTable(true);
+
+	private final int mContainerWidth;
+	private final BreakpointPolicy.SizeClass mSizeClass;
+	private final int mMaxVisiblePanes;
+
+	// Coefficients used by the size class and values of the widths for the width of the control
+	private final int[] mBoundsTable;
+	private final int[] mUnits = new int[UNIT_COUNT];
+
+	/**
+	 * Creates the geometry for the container width received as parameter.
+	 *
+	 * @param containerWidth   Width in pixels of the control
+	 * @param sizeClass        Size class of the control, which defines how many panels can be visible at
+	 *                         the same time and the fraction of the width of each one
+	 */
+	public PaneGeometry(int containerWidth, BreakpointPolicy.SizeClass sizeClass) {
+
+		mContainerWidth = containerWidth;
+		mSizeClass = sizeClass;
+		mMaxVisiblePanes = sizeClass.getMaxVisiblePanes();
+		mBoundsTable = mMaxVisiblePanes > 2 ? THREE_PANE_BOUNDS : TWO_PANE_BOUNDS;
+
+		mUnits[UNIT_CONTAINER] = containerWidth;
+
+		if (mMaxVisiblePanes > 1) {
+
+			mUnits[UNIT_MIN_PANE] = (int) (containerWidth * sizeClass.getNarrowPaneWeight());
+			mUnits[UNIT_MAX_PANE] = containerWidth - mUnits[UNIT_MIN_PANE];
+
+		} else {
+
+			mUnits[UNIT_MIN_PANE] = mUnits[UNIT_MAX_PANE] = containerWidth;
+		}
+
+		if (mMaxVisiblePanes > 2) {
+
+			mUnits[UNIT_THREE_LEFT]   = (int) (containerWidth * sizeClass.getLeftPaneWeight());
+			mUnits[UNIT_THREE_MIDDLE] = (int) (containerWidth * sizeClass.getMiddlePaneWeight());
+
+		} else {
+
+			// The state is not available, its panels are placed as when only the middle panel is visible
+			mUnits[UNIT_THREE_LEFT]   = mUnits[UNIT_MIN_PANE];
+			mUnits[UNIT_THREE_MIDDLE] = containerWidth;
+		}
+	}
+
+	/**
+	 * Calculates the coefficients of the widths for the bounds of every panel in every state. The bounds are
+	 * linear in the widths, so the coefficients of each width are the bounds calculated when that width is 1
+	 * and the others are 0.
+	 *
+	 * @param threePanes   <i>true</i> if the three panels can be visible
+	 */
+	private static int[] computeBoundsTable(boolean threePanes) {
+
+		int[] table = new int[STATE_COUNT * PANE_COUNT * 2 * UNIT_COUNT];
+		int[] units = new int[UNIT_COUNT];
+		int[] bounds = new int[PANE_COUNT * 2];
+
+		for (int unit = 0; unit < UNIT_COUNT; unit++) {
+
+			units[unit] = 1;
+
+			for (int state = 0; state < STATE_COUNT; state++) {
+
+				computeStateBounds(state, threePanes, units, bounds);
+
+				for (int i = 0; i < bounds.length; i++) {
+					table[(state * bounds.length + i) * UNIT_COUNT + unit] = bounds[i];
+				}
+			}
+
+			units[unit] = 0;
+		}
+
+		return table;
+	}
+
+	/**
+	 * Calculates the bounds of the panels for the state received as parameter. The panels are always
+	 * contiguous, so each one starts where the previous one ends.
+	 *
+	 * @param state        Visibility state
+	 * @param threePanes   <i>true</i> if the three panels can be visible
+	 * @param units        Widths from which the bounds are calculated, by UNIT_* constant
+	 * @param bounds       Destination of the pairs (x, width) of the panels
+	 */
+	private static void computeStateBounds(int state, boolean threePanes, int[] units, int[] bounds) {
+
+		int containerWidth = units[UNIT_CONTAINER];
+		int minPaneWidth   = units[UNIT_MIN_PANE];
+		int maxPaneWidth   = units[UNIT_MAX_PANE];
+
+		int leftX;
+		int leftWidth   = minPaneWidth;
+		int middleWidth = maxPaneWidth;
+		int rightWidth  = maxPaneWidth;
+
+		switch (state) {
+
+		case LEFT_VISIBLE:
+			leftX = 0;
+			leftWidth = containerWidth;
+			break;
+
+		case LEFT_AND_MIDDLE_VISIBLE:
+			leftX = 0;
+			break;
+
+		case MIDDLE_VISIBLE:
+			leftX = -minPaneWidth;
+			middleWidth = containerWidth;
+			break;
+
+		case MIDDLE_AND_RIGHT_VISIBLE:
+			leftX = -minPaneWidth;
+			middleWidth = minPaneWidth;
+			break;
+
+		case RIGHT_VISIBLE:
+			leftX = -2 * minPaneWidth;
+			middleWidth = minPaneWidth;
+			rightWidth = containerWidth;
+			break;
+
+		default: // ALL_VISIBLE
+			leftWidth = units[UNIT_THREE_LEFT];
+			middleWidth = units[UNIT_THREE_MIDDLE];
+			leftX = threePanes ? 0 : -leftWidth;
+			rightWidth = threePanes ? containerWidth - leftWidth - middleWidth : maxPaneWidth;
+			break;
+		}
+
+		bounds[0] = leftX;
+		bounds[1] = leftWidth;
+		bounds[2] = leftX + leftWidth;
+		bounds[3] = middleWidth;
+		bounds[4] = leftX + leftWidth + middleWidth;
+		bounds[5] = rightWidth;
+	}
+
+	/**
+	 * Returns the number of panels visible in the state received as parameter
+	 *
+	 * @param state   Visibility state
+	 */
+	public static int getVisiblePanes(int state) {
+
+		switch (state) {
+
+		case LEFT_AND_MIDDLE_VISIBLE:
+		case MIDDLE_AND_RIGHT_VISIBLE:
+			return 2;
+
+		case ALL_VISIBLE:
+			return 3;
+
+		default:
+			return 1;
+		}
+	}
+
+	/**
+	 * Returns the state to which the control moves when the number of panels that can be visible at the 
+	 * same time changes (e.g. when the device is rotated). When two or more panels can be visible, the 
+	 * state that only shows the left panel is extended to the middle panel, and when the three panels can 
+	 * be visible the states with two panels are extended to the three panels. When less panels can be 
+	 * visible, the states are replaced by the one that shows the panel that was the widest.
+	 *
+	 * @param state             Visibility state before the change
+	 * @param maxVisiblePanes   Number of panels that can be visible at the same time after the change
+	 */
+	public static int stateForMaxVisiblePanes(int state, int maxVisiblePanes) {
+
+		if (maxVisiblePanes > 2 && (state == LEFT_AND_MIDDLE_VISIBLE || state == MIDDLE_AND_RIGHT_VISIBLE)) {
+			return ALL_VISIBLE;
+		}
+
+		if (maxVisiblePanes > 1) {
+
+			if (state == LEFT_VISIBLE) {
+				return LEFT_AND_MIDDLE_VISIBLE;
+			}
+
+			return state == ALL_VISIBLE && maxVisiblePanes == 2 ? MIDDLE_AND_RIGHT_VISIBLE : state;
+		}
+
+		switch (state) {
+
+		case LEFT_AND_MIDDLE_VISIBLE:
+			return MIDDLE_VISIBLE;
+
+		case MIDDLE_AND_RIGHT_VISIBLE:
+		case ALL_VISIBLE:
+			return RIGHT_VISIBLE;
+
+		default:
+			return state;
+		}
+	}
+
+	/**
+	 * Returns the state shown in a size class for the state requested by the user in another one. The
+	 * requested state is kept while it fits, and it is only extended to the new panels when more panels can
+	 * be visible than when it was requested, so going back to the original size class always shows the
+	 * requested state again (e.g. the left panel shown on a phone is shown again after the device is
+	 * rotated twice).
+	 *
+	 * @param requestedState             Visibility state requested by the user
+	 * @param requestedMaxVisiblePanes   Number of panels that could be visible when the state was requested
+	 * @param maxVisiblePanes            Number of panels that can be visible in the size class
+	 * @see #stateForMaxVisiblePanes(int, int)
+	 */
+	public static int stateForSizeClass(int requestedState, int requestedMaxVisiblePanes, int maxVisiblePanes) {
+
+		if (getVisiblePanes(requestedState) > maxVisiblePanes || maxVisiblePanes > requestedMaxVisiblePanes) {
+			return stateForMaxVisiblePanes(requestedState, maxVisiblePanes);
+		}
+
+		return requestedState;
+	}
+
+	/**
+	 * Returns the state next to the one received as parameter in the given direction. When two or more 
+	 * panels can be visible the states with one or two panels follow the order of declaration, when only 
+	 * one panel can be visible the states with two panels are skipped. The state that shows the three 
+	 * panels has no adjacent states.
+	 *
+	 * @param state             Visibility state
+	 * @param direction         1 to move towards the right panel, -1 to move towards the left panel
+	 * @param maxVisiblePanes   Number of panels that can be visible at the same time
+	 * @return                  The adjacent state or -1 if there is no state in that direction
+	 */
+	public static int adjacentState(int state, int direction, int maxVisiblePanes) {
+
+		if (state == ALL_VISIBLE) {
+			return -1;
+		}
+
+		int adjacent = state + (maxVisiblePanes > 1 ? direction : 2 * direction);
+
+		return adjacent >= 0 && adjacent <= RIGHT_VISIBLE ? adjacent : -1;
+	}
+
+	/**
+	 * Returns the state to which the control moves when one of its navigation controls is used. With one 
+	 * panel visible the controls move to the next panel in their direction. With two or more panels visible 
+	 * the controls of the left and right panels expand the panel or show again the panels next to it, and 
+	 * the controls of the middle panel move the edge of the middle panel in their direction. When the three 
+	 * panels can be visible, the controls that would show two panels show the three of them.
+	 * 
+	 * @param state             Visibility state
+	 * @param direction         One of {@link #NAVIGATE_LEFT_PANE}, {@link #NAVIGATE_MIDDLE_PANE_TO_LEFT}, 
+	 *                          {@link #NAVIGATE_MIDDLE_PANE_TO_RIGHT} or {@link #NAVIGATE_RIGHT_PANE}
+	 * @param maxVisiblePanes   Number of panels that can be visible at the same time
+	 * @return                  The new state or -1 if the control does not change the state
+	 */
+	public static int navigationTarget(int state, int direction, int maxVisiblePanes) {
+
+		int target = -1;
+
+		if (maxVisiblePanes == 1) {
+
+			switch (direction) {
+
+			case NAVIGATE_LEFT_PANE:
+			case NAVIGATE_RIGHT_PANE:
+				target = MIDDLE_VISIBLE;
+				break;
+
+			case NAVIGATE_MIDDLE_PANE_TO_LEFT:
+				target = LEFT_VISIBLE;
+				break;
+
+			default: // NAVIGATE_MIDDLE_PANE_TO_RIGHT
+				target = RIGHT_VISIBLE;
+				break;
+			}
+
+		} else {
+
+			int leftAndMiddle  = maxVisiblePanes > 2 ? ALL_VISIBLE : LEFT_AND_MIDDLE_VISIBLE;
+			int middleAndRight = maxVisiblePanes > 2 ? ALL_VISIBLE : MIDDLE_AND_RIGHT_VISIBLE;
+
+			switch (direction) {
+
+			case NAVIGATE_LEFT_PANE:
+
+				if (state == LEFT_AND_MIDDLE_VISIBLE || state == ALL_VISIBLE) {
+					target = LEFT_VISIBLE;
+				} else if (state == LEFT_VISIBLE) {
+					target = leftAndMiddle;
+				}
+				break;
+
+			case NAVIGATE_MIDDLE_PANE_TO_LEFT:
+
+				if (state == LEFT_AND_MIDDLE_VISIBLE) {
+					target = MIDDLE_VISIBLE;
+				} else if (state == MIDDLE_VISIBLE) {
+					target = LEFT_AND_MIDDLE_VISIBLE;
+				} else if (state == MIDDLE_AND_RIGHT_VISIBLE) {
+					target = leftAndMiddle;
+				} else if (state == ALL_VISIBLE) {
+					target = MIDDLE_AND_RIGHT_VISIBLE;
+				}
+				break;
+
+			case NAVIGATE_MIDDLE_PANE_TO_RIGHT:
+
+				if (state == LEFT_AND_MIDDLE_VISIBLE) {
+					target = middleAndRight;
+				} else if (state == MIDDLE_VISIBLE) {
+					target = MIDDLE_AND_RIGHT_VISIBLE;
+				} else if (state == MIDDLE_AND_RIGHT_VISIBLE) {
+					target = MIDDLE_VISIBLE;
+				} else if (state == ALL_VISIBLE) {
+					target = LEFT_AND_MIDDLE_VISIBLE;
+				}
+				break;
+
+			default: // NAVIGATE_RIGHT_PANE
+
+				if (state == MIDDLE_AND_RIGHT_VISIBLE || state == ALL_VISIBLE) {
+					target = RIGHT_VISIBLE;
+				} else if (state == RIGHT_VISIBLE) {
+					target = middleAndRight;
+				}
+				break;
+			}
+		}
+
+		return target == state ? -1 : target;
+	}
+
+	/**
+	 * Returns the position on the x axis of a panel in the given state
+	 *
+	 * @param state   Visibility state
+	 * @param pane    Panel position
+	 */
+	public int getX(int state, int pane) {
+		return getBound((state * PANE_COUNT + pane) * 2);
+	}
+
+	/**
+	 * Returns the width of a panel in the given state
+	 *
+	 * @param state   Visibility state
+	 * @param pane    Panel position
+	 */
+	public int getWidth(int state, int pane) {
+		return getBound((state * PANE_COUNT + pane) * 2 + 1);
+	}
+
+	/**
+	 * Returns a value of the bounds table for the width of the control
+	 *
+	 * @param bound   Position of the value in the pairs (x, width) of the panels
+	 */
+	private int getBound(int bound) {
+
+		int index = bound * UNIT_COUNT;
+		int value = 0;
+
+		for (int unit = 0; unit < UNIT_COUNT; unit++) {
+			value += mBoundsTable[index + unit] * mUnits[unit];
+		}
+
+		return value;
+	}
+
+	public int getContainerWidth() {
+		return mContainerWidth;
+	}
+
+	public BreakpointPolicy.SizeClass getSizeClass() {
+		return mSizeClass;
+	}
+
+	public int getMaxVisiblePanes() {
+		return mMaxVisiblePanes;
+	}
+
+}
@@ -0,0 +1,76 @@
+package com.panels.controls;
+
+import android.graphics.Canvas;
+import android.view.View;
+
+/**
+ * <p>Operations shared by {@link ThreePaneLayout} and {@link NPaneLayout} to measure their panels and to
+ * move them during a translate and clip transition.</p>
+ *
+ * <p>During these transitions each panel is laid out once with its final left edge and a width that covers
+ * the whole transition. The frames only change the translation of the panel and the width to which it is
+ * clipped when it is drawn.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+final class PaneSupport {
+
+	private PaneSupport() {/**/}
+
+	/**
+	 * Returns whether a panel has to be measured again. A panel whose size has not changed and that has
+	 * not requested a layout keeps its measure.
+	 *
+	 * @param pane               The panel
+	 * @param widthSpec          Width measure spec of the panel
+	 * @param heightSpec         Height measure spec of the panel
+	 * @param lastWidthSpec      Width measure spec used the last time the panel was measured
+	 * @param lastHeightSpec     Height measure spec used the last time the panel was measured
+	 * @param measureRequested   <i>true</i> to also measure the panel if it has requested a layout
+	 */
+	static boolean needsMeasure(View pane, int widthSpec, int heightSpec, int lastWidthSpec, int lastHeightSpec,
+			boolean measureRequested) {
+
+		return widthSpec != lastWidthSpec || heightSpec != lastHeightSpec
+				|| (measureRequested && pane.isLayoutRequested());
+	}
+
+	/**
+	 * Returns the value between the two received as parameter that corresponds to the elapsed fraction
+	 * of a transition
+	 */
+	static float interpolate(float start, float end, float fraction) {
+		return start + (end - start) * fraction;
+	}
+
+	/**
+	 * Moves a panel to a position on the x axis without laying it out again
+	 *
+	 * @param pane         The panel
+	 * @param layoutLeft   Left edge with which the panel has been laid out
+	 * @param x            Position of the panel in the current frame
+	 */
+	static void translate(View pane, int layoutLeft, float x) {
+		pane.setTranslationX(x - layoutLeft);
+	}
+
+	/**
+	 * Restricts the drawing of a panel to the width that it has in the current frame. The caller draws
+	 * the panel and then restores the canvas to the returned save count.
+	 *
+	 * @param canvas      Canvas of the control
+	 * @param child       The panel
+	 * @param clipWidth   Width of the panel in the current frame
+	 * @return Save count of the canvas before the clip
+	 */
+	static int clip(Canvas canvas, View child, float clipWidth) {
+
+		float left = child.getLeft() + child.getTranslationX();
+
+		int saveCount = canvas.save();
+		canvas.clipRect(left, child.getTop(), left + clipWidth, child.getBottom());
+
+		return saveCount;
+	}
+}
@@ -1,49 +1,193 @@
 package com.panels.controls;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.PrintWriter;
 
 import android.animation.Animator;
 import android.animation.AnimatorListenerAdapter;
-import android.animation.ObjectAnimator;
+import android.animation.ValueAnimator;
 import android.content.Context;
-import android.content.res.Configuration;
 import android.content.res.TypedArray;
-import android.os.Handler;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
 import android.util.AttributeSet;
 import android.util.DisplayMetrics;
 import android.util.Log;
+import android.view.MotionEvent;
+import android.view.VelocityTracker;
 import android.view.View;
-import android.view.WindowManager;
-import android.widget.LinearLayout;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
 
 import com.panels.R;
 
 /**
- * <p>Control to display up to three panels with a maximum of two simultaneously visible.</p>
+ * <p>Control to display up to three panels. The number of panels that can be visible at the same time, 
+ * and the width of each one, depend on the width of the control as defined by its {@link BreakpointPolicy}.</p>
+ * 
+ * <p>The control places the panels by itself: each panel is measured once per layout pass with an exact 
+ * width taken from the current {@link PaneGeometry}, and panels outside the control are neither measured, 
+ * laid out nor drawn.</p>
+ * 
+ * <p>Once the control has performed a first transition, starting a transition, its frames and its end do not 
+ * allocate Java objects in the control, whether tracing is enabled or not. The animator of the framework still copies its listeners 
+ * when it starts and ends, and the hardware layers of the panels are not reused: with the layer policies 
+ * {@link LayerPolicy#HARDWARE_DURING_TRANSITION} and {@link LayerPolicy#HARDWARE_PREWARMED} they are created 
+ * for each transition and released when it ends.</p>
  
  * @author Diego Palomar <dfpalomar@gmail.com>
  *
  */
-public class ThreePaneLayout extends LinearLayout {
+public class ThreePaneLayout extends ViewGroup {
 	
 	/**
 	 * Time control takes for the state change animation
 	 */
 	public static final int ANIMATION_DURATION = 300;
 	
-	private boolean isScrollingViews;
+	/**
+	 * Distance from a panel edge, in dips, in which a touch can start dragging the panels
+	 */
+	private static final int EDGE_TOUCH_WIDTH_DIP = 24;
+	
+	/**
+	 * Geometries kept by each control, so rotating back and forth between two widths does not create 
+	 * a geometry again. Any other width only creates a geometry with the widths of its panels, the 
+	 * bounds of the states are looked up in a table shared by all of them (see {@link PaneGeometry}).
+	 */
+	private static final int CACHED_GEOMETRIES = 2;
+	
+	// Methods of OnStateChangeListener, used as index of the names of the trace sections of each observer
+	private static final int LISTENER_BEGIN_TRANSITION    = 0;
+	private static final int LISTENER_NEW_STATE_VISIBLE   = 1;
+	private static final int LISTENER_TRANSITION_FINISHED = 2;
+	
+	// Notifications of the observers, the arguments are the states received by each method
+	private static final ObserverArray.Notification<OnStateChangeListener, VisibilityState> BEGIN_TRANSITION = 
+			new ObserverArray.Notification<OnStateChangeListener, VisibilityState>() {
+		@Override
+		public void send(OnStateChangeListener observer, VisibilityState oldState, VisibilityState newState) {
+			observer.onBeginTransitionState(oldState, newState);
+		}
+	};
+	
+	private static final ObserverArray.Notification<OnStateChangeListener, VisibilityState> NEW_STATE_VISIBLE = 
+			new ObserverArray.Notification<OnStateChangeListener, VisibilityState>() {
+		@Override
+		public void send(OnStateChangeListener observer, VisibilityState newState, VisibilityState unused) {
+			observer.onNewStateVisible(newState);
+		}
+	};
+	
+	private static final ObserverArray.Notification<OnStateChangeListener, VisibilityState> TRANSITION_FINISHED = 
+			new ObserverArray.Notification<OnStateChangeListener, VisibilityState>() {
+		@Override
+		public void send(OnStateChangeListener observer, VisibilityState newState, VisibilityState unused) {
+			observer.onTransitionFinished(newState);
+		}
+	};
+	
+	/**
+	 * Property of a panel that a transition animates. The values are set through typed methods, 
+	 * without reflection and without boxing them.
+	 */
+	private static abstract class PaneProperty {
+		
+		/**
+		 * @param layout   The control
+		 * @param pane     Position of the panel
+		 * @param value    New value of the property
+		 */
+		abstract void set(ThreePaneLayout layout, int pane, float value);
+	}
+	
+	// Width of a panel in the relayout mode. The left edges of the panels are updated once all the 
+	// widths of the frame have been set, see layoutPanesSideBySide()
+	private static final PaneProperty PANE_WIDTH = new PaneProperty() {
+		@Override
+		void set(ThreePaneLayout layout, int pane, float value) {
+			layout.mPaneLayoutWidth[pane] = Math.round(value);
+		}
+	};
+	
+	// Translation on the x axis of a panel
+	private static final PaneProperty PANE_TRANSLATION_X = new PaneProperty() {
+		@Override
+		void set(ThreePaneLayout layout, int pane, float value) {
+			layout.mPanes[pane].setTranslationX(value);
+		}
+	};
 	
 	/**
 	 * Possible control visibility states. The states are exclusive, ie, if the control is 
-	 * in state {@ link LEFT_AND_MIDDLE_VISIBLE} implies that the right pane is not visible.
+	 * in state {@ link LEFT_AND_MIDDLE_VISIBLE} implies that the right pane is not visible. The 
+	 * state {@link #ALL_VISIBLE} is only available in the size classes that show three panels.
 	 */
 	public enum VisibilityState {
 		LEFT_VISIBLE,
 		LEFT_AND_MIDDLE_VISIBLE, 
 		MIDDLE_VISIBLE, 
 		MIDDLE_AND_RIGHT_VISIBLE,
-		RIGHT_VISIBLE
+		RIGHT_VISIBLE,
+		ALL_VISIBLE
+	}
+	
+	// Cached copy of VisibilityState.values(), which returns a new array on every call
+	private static final VisibilityState[] VISIBILITY_STATES = VisibilityState.values();
+	
+	/**
+	 * Navigation controls of the panels (e.g. the arrows shown in them). The state to which each control 
+	 * moves the control depends on the current state and on the number of panels that can be visible, 
+	 * see {@link ThreePaneLayout#navigate(Direction)}.
+	 */
+	public enum Direction {
+		
+		/**
+		 * Control of the left panel. Expands the left panel or shows again the panels next to it. When only 
+		 * one panel is visible, shows the middle panel.
+		 */
+		LEFT_PANE,
+		
+		/**
+		 * Control of the middle panel towards the left. Moves the left edge of the middle panel, or its 
+		 * right edge if the left one is not visible. When only one panel is visible, shows the left panel.
+		 */
+		MIDDLE_PANE_TO_LEFT,
+		
+		/**
+		 * Control of the middle panel towards the right. Moves the right edge of the middle panel, or its 
+		 * left edge if the right one is not visible. When only one panel is visible, shows the right panel.
+		 */
+		MIDDLE_PANE_TO_RIGHT,
+		
+		/**
+		 * Control of the right panel. Expands the right panel or shows again the panels next to it. When 
+		 * only one panel is visible, shows the middle panel.
+		 */
+		RIGHT_PANE
+	}
+	
+	// State to which each navigation control moves the control, indexed by number of visible panels - 1, 
+	// direction and current state. A null entry means that the control does not change the state
+	private static final VisibilityState[][][] NAVIGATION_TABLE = 
+			new VisibilityState[PaneGeometry.PANE_COUNT][PaneGeometry.DIRECTION_COUNT][PaneGeometry.STATE_COUNT];
+	
+	static {
+		
+		for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+			for (int direction = 0; direction < PaneGeometry.DIRECTION_COUNT; direction++) {
+				for (int state = 0; state < PaneGeometry.STATE_COUNT; state++) {
+					
+					int target = PaneGeometry.navigationTarget(state, direction, panes);
+					
+					if (target != -1 && PaneGeometry.getVisiblePanes(target) <= panes) {
+						NAVIGATION_TABLE[panes - 1][direction][state] = VISIBILITY_STATES[target];
+					}
+				}
+			}
+		}
 	}
 	
 	/**
@@ -61,12 +205,90 @@ public class ThreePaneLayout extends LinearLayout {
 		void onBeginTransitionState(VisibilityState oldState, VisibilityState newState);
 		
 		/**
-		 * Method invoked by the control when its visibility status has been updated
+		 * Method invoked by the control when its visibility status has been updated. The transition of the 
+		 * panels may not have started yet.
 		 * 
 		 * @param newState   New visibility state of the control panels
 		 */
 		void onNewStateVisible(VisibilityState newState);
 		
+		/**
+		 * Method invoked by the control once the panels have reached their final position, after the last 
+		 * animator of the transition has ended. When a transition is retargeted it is only invoked for the 
+		 * last requested state.
+		 * 
+		 * @param newState   Visibility state shown by the control panels
+		 */
+		void onTransitionFinished(VisibilityState newState);
+		
+	}
+	
+	/**
+	 * Interface to be implemented by clients that require to know how smooth the visibility 
+	 * state transitions of the control are.
+	 */
+	public interface OnTransitionMetricsListener {
+		
+		/**
+		 * Method invoked by the control when the last animator of a transition has finished or, if the 
+		 * panels have to be laid out again at their final widths, once that layout pass has been done
+		 * 
+		 * @param metrics   Frame timing measurements of the transition. The instance is reused by the 
+		 *                  control, so it is only valid during this call
+		 */
+		void onTransitionMetrics(TransitionMetrics metrics);
+	}
+	
+	/**
+	 * Strategies that the control can use to move the panels during a visibility state transition.
+	 */
+	public enum TransitionMode {
+		
+		/**
+		 * The widths of the panels are animated, so the panels are measured and laid out again on 
+		 * every frame of the transition, and once more when it ends to leave out the panels outside 
+		 * the control.
+		 */
+		RELAYOUT,
+		
+		/**
+		 * Each panel is laid out once at the beginning of the transition and the intermediate frames 
+		 * are drawn only by translating and clipping the panels. No measure or layout pass is 
+		 * performed while the animation runs.
+		 */
+		TRANSLATE_AND_CLIP,
+		
+		/**
+		 * Like {@link #TRANSLATE_AND_CLIP}, but once the panels have been laid out each moving panel is 
+		 * rendered into a bitmap, and the frames draw the bitmaps instead of the panels. Suited for panels 
+		 * whose content is expensive to draw. The bitmaps come from a pool whose memory is limited with 
+		 * {@link ThreePaneLayout#setSnapshotMemoryLimit(int)}; a panel that does not fit in it is drawn live.
+		 */
+		SNAPSHOT
+	}
+	
+	/**
+	 * Policies about the type of layer used by the panels while they are moving.
+	 */
+	public enum LayerPolicy {
+		
+		/**
+		 * The panels are not promoted to layers, their whole content is redrawn on every frame.
+		 */
+		NONE,
+		
+		/**
+		 * The panels are promoted to hardware layers during the transition, so the frames only 
+		 * composite the cached textures. The layers are released when the last animator finishes, so 
+		 * every transition renders them again.
+		 */
+		HARDWARE_DURING_TRANSITION,
+		
+		/**
+		 * Like {@link #HARDWARE_DURING_TRANSITION}, but the layers are built before the first frame of
+		 * the transition instead of during it.
+		 */
+		HARDWARE_PREWARMED
 	}
 	
 	// Reference to the three panels of the control
@@ -74,23 +296,186 @@ public class ThreePaneLayout extends LinearLayout {
 	private View mMiddleView;
 	private View mRightView;
 	
-	// Variables that store the minimum and maximum widths that can have different panels
-	private int mMinPaneWidth = -1;
-	private int mMaxPaneWidth;
-	private int mFullScreenWidth;
+	// Position and width of the panels for every visibility state, calculated from the width of the 
+	// control. It is null while the control has not been measured
+	private PaneGeometry mGeometry;
+	
+	// Last geometries used by the control, the most recently used first. The activity handles the 
+	// orientation changes, so the control survives them and going back to a width already used is 
+	// only a lookup
+	private final PaneGeometry[] mGeometryCache = new PaneGeometry[CACHED_GEOMETRIES];
+	
+	// Size classes of the control by width
+	private BreakpointPolicy mBreakpointPolicy = BreakpointPolicy.DEFAULT;
+	
+	// Size class for which the current state has been chosen. It is estimated from the width of the 
+	// display when the control is created and updated from the final size of the control, never from 
+	// a measure, so a parent that measures its children at several widths does not change the state
+	private BreakpointPolicy.SizeClass mSizeClass;
+	
+	// False while the size class is the estimate made from the width of the display
+	private boolean mSizeClassResolved;
+	
+	// Last state requested by the user and number of panels that could be visible when it was requested. 
+	// The state shown in every size class is derived from them, so changing the size class back and forth 
+	// shows again the state requested
+	private int mRequestedState;
+	private int mRequestedMaxVisiblePanes;
+	
+	// Indicates that the panels must be placed in the current state in the next measure or layout
+	private boolean mPlaceStatePending;
 	
-	// Stores the current device orientation
-	private int mScreenOrientation;
 
 	// Reference to the current state of the panels
 	private VisibilityState mVisibilityState;
+	
+	private TransitionMode mTransitionMode = TransitionMode.TRANSLATE_AND_CLIP;
+	
+	// Panels indexed by position (left, middle, right) 
+	private final View[] mPanes = new View[3];
+	
+	// On screen position and width of the panels when the current transition started. A transition 
+	// can start while another one is running, so these values are not always those of a state
+	private final float[] mStartX = new float[3];
+	private final float[] mStartWidth = new float[3];
+	
+	// Ordinal of the final state of the current transition and mode used to perform it
+	private int mTransitionTo;
+	private TransitionMode mRunningMode;
+	
+	// Animator reused by every transition. It drives all the panels from a single fraction, so they 
+	// move in lockstep with one callback per frame. Package-private so the tests can run its callbacks
+	ValueAnimator mTransitionAnimator;
+	
+	// Left edge and width assigned by the layout to each panel, and whether the panel takes part in the 
+	// layout. The panels are always placed from these values, never from their layout params
+	private final int[] mPaneLayoutLeft = new int[3];
+	private final int[] mPaneLayoutWidth = new int[3];
+	private final boolean[] mPaneShown = { true, true, true };
+	
+	// Measure specs used the last time each panel was measured
+	private final int[] mPaneWidthSpecs = new int[3];
+	private final int[] mPaneHeightSpecs = new int[3];
+	
+	// Width to which each panel is clipped while a translate and clip transition is running
+	private final float[] mPaneClipWidth = new float[3];
+	
+	private boolean mClipPanes;
+	
+	// Bitmaps in which the panels are rendered during a snapshot transition, null for the panels drawn live
+	private final Bitmap[] mSnapshots = new Bitmap[3];
+	private BitmapPool mSnapshotPool;
+	private Canvas mSnapshotCanvas;
+	private int mSnapshotMemoryLimit = -1;
+	
+	// Indicates that the snapshots of the panels must be rendered once the pending layout has been done
+	private boolean mCaptureSnapshotsOnLayout;
+	
+	private LayerPolicy mLayerPolicy = LayerPolicy.HARDWARE_DURING_TRANSITION;
+	
+	// Number of animators of the current transition that have not finished yet
+	private int mRunningAnimators;
+	
+	// Indicates that the layers of the panels must be built once the pending layout has been done
+	private boolean mBuildLayersOnLayout;
+	
+	// True while the animators of a transition are cancelled to retarget it to another state
+	private boolean mCancellingTransition;
+	
+	// Drag of the panels boundaries. The touch path only uses primitive fields and a single 
+	// velocity tracker, so a drag does not allocate
+	private final int mTouchSlop;
+	private final int mMinimumFlingVelocity;
+	private final int mMaximumFlingVelocity;
+	private final int mEdgeTouchWidth;
+	
+	private VelocityTracker mVelocityTracker;
+	
+	private boolean mEdgeTouched;
+	private boolean mDragging;
+	
+	private float mDownX;
+	private float mDownY;
+	private float mDragFraction;
+	
+	// States adjacent to the current one, or -1 if there is no state in that direction
+	private int mDragPreviousState;
+	private int mDragNextState;
+	
+	// Measure and layout passes of the control and of its panels since the current transition started
+	private int mTransitionMeasures;
+	private int mTransitionLayouts;
+	private int mTransitionPaneMeasures;
+	private int mTransitionPaneLayouts;
+	
+	// Indicates that the metrics of the last transition must be published once the pending layout has 
+	// been done, so they include the final pass requested when the animation ends
+	private boolean mPublishMetricsOnLayout;
+	
+	// Counters since the control was created, see LayoutStats. requestLayout() can be invoked by the 
+	// constructor of the superclass, so these fields must not have initializers
+	private int mRequestLayoutCount;
+	private int mMeasureCount;
+	private int mLayoutCount;
+	private int mTransitionsStarted;
+	private int mTransitionsCompleted;
+	private int mTransitionsDropped;
+	private long mTotalTransitionTimeNanos;
+	private long mTransitionStartNanos;
+	
+	/**
+	 * Listener shared by all the animators of a transition. Releases the layers of the panels when the 
+	 * last animator finishes.
+	 */
+	private final AnimatorListenerAdapter mAnimatorEndListener = new AnimatorListenerAdapter() {
+		@Override
+		public void onAnimationEnd(Animator animation) {
+			
+			if (!mCancellingTransition && --mRunningAnimators == 0) {
+				
+				mTransitionsCompleted++;
+				mTotalTransitionTimeNanos += System.nanoTime() - mTransitionStartNanos;
+				
+				releasePaneLayers();
+				releaseSnapshots();
+				
+				if (isLayoutRequested()) {
+					mPublishMetricsOnLayout = true;
+				} else {
+					publishTransitionMetrics();
+				}
+				
+				dispatchTransitionFinished();
+			}
+		}
+	};
+	
+	// Indicates that the observers have not been notified yet of the end of the last transition
+	private boolean mTransitionFinishPending;
+	
+	/**
+	 * Notifies the end of a transition aborted while the control was measured or laid out
+	 */
+	private final Runnable mDispatchTransitionFinished = new Runnable() {
+		@Override
+		public void run() {
+			dispatchTransitionFinished();
+		}
+	};
 		
 	/**
-	 * Lista de observadores de cambio de estado del control
+	 * Lista de observadores de cambio de estado del control. Notifying them, traced or not, does not allocate
 	 */
-	private List<OnStateChangeListener> mStateListeners;
+	private final ObserverArray<OnStateChangeListener> mStateListeners = new ObserverArray<OnStateChangeListener>(
+			"onBeginTransitionState", "onNewStateVisible", "onTransitionFinished");
 	
-	private Handler mHandler = new Handler();
+	private OnTransitionMetricsListener mTransitionMetricsListener;
+	
+	// Created only when there is a metrics listener and the device supports frame callbacks
+	private TransitionFrameRecorder mFrameRecorder;
+	
+	// Records the sections of the transitions, null while tracing is disabled
+	private TransitionTracer mTracer;
 	
 	private Context mContext;
 	
@@ -101,32 +486,37 @@ public class ThreePaneLayout extends LinearLayout {
 		
 		mContext = context;
 		
-		mScreenOrientation = getResources().getConfiguration().orientation;
+		ViewConfiguration configuration = ViewConfiguration.get(context);
+		
+		mTouchSlop = configuration.getScaledTouchSlop();
+		mMinimumFlingVelocity = configuration.getScaledMinimumFlingVelocity();
+		mMaximumFlingVelocity = configuration.getScaledMaximumFlingVelocity();
+		mEdgeTouchWidth = (int) (EDGE_TOUCH_WIDTH_DIP * getResources().getDisplayMetrics().density + 0.5f);
+		
+		DisplayMetrics metrics = getResources().getDisplayMetrics();
+		mSizeClass = mBreakpointPolicy.resolve(metrics.widthPixels / metrics.density);
 		
 		init(context, attrs);
 	}
 	
 	private void init(Context context, AttributeSet attrs) {
 
-		setOrientation(HORIZONTAL);
-		
 	    TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.ThreePaneLayout);
-	    String initialState = a.getString(R.styleable.ThreePaneLayout_initialState);
 	    
-	    if ( initialState != null ) { 
-	    	// The initial state has been defined in the XML
-	    	
-	    	if (initialState.equals("left_visible")) {
-	    		mVisibilityState = VisibilityState.LEFT_VISIBLE;
-	    	} else if (initialState.equals("left_and_middle_visible")) {
-	    		mVisibilityState = VisibilityState.LEFT_AND_MIDDLE_VISIBLE;
-	    	} 
-	    	
-	    } else { 
-	    	// The initial state is not defined in the XML, set the default state
-	    	
-	    	mVisibilityState = VisibilityState.LEFT_AND_MIDDLE_VISIBLE;
-	    }
+	    // The initial state is defined in the XML by the position of the state in VisibilityState. 
+	    // When it is not defined, the default state is LEFT_AND_MIDDLE_VISIBLE
+	    int initialState = a.getInt(R.styleable.ThreePaneLayout_initialState, 
+	    		VisibilityState.LEFT_AND_MIDDLE_VISIBLE.ordinal());
+	    
+	    a.recycle();
+	    
+	    // The states with more panels than the estimated size class allows are replaced. The panels are 
+	    // placed in the state of the real size class by the first layout, so the first frame is already correct
+	    mRequestedState = initialState;
+	    mRequestedMaxVisiblePanes = mSizeClass.getMaxVisiblePanes();
+	    
+	    mVisibilityState = VISIBILITY_STATES[PaneGeometry.stateForSizeClass(initialState, 
+	    		mRequestedMaxVisiblePanes, mRequestedMaxVisiblePanes)];
 	}
 
 	@Override
@@ -141,363 +531,1494 @@ public class ThreePaneLayout extends LinearLayout {
 		mLeftView   = getChildAt(0);
 		mMiddleView = getChildAt(1);
 		mRightView  = getChildAt(2);
-        
-		configureWidth();
+		
+		mPanes[0] = mLeftView;
+		mPanes[1] = mMiddleView;
+		mPanes[2] = mRightView;
 	}
 	
 	/**
-	 * Set the weights of each of the views of the layout container.
-	 * 
-	 * If the method takes no arguments recalculates the weights based on the current  visibility 
-	 * state of the control. If this method receive a parameter is used as visibility state from 
-	 * which will be held on recalculation
+	 * Places the panels in the final position of the state received as parameter, without translations
 	 * 
-	 * @param args
+	 * @param state   Ordinal of the visibility state
 	 */
-	private void configureWidth(VisibilityState ... args) {
+	private void placeState(int state) {
 		
-		LayoutParams leftPaneLayoutParams   = (LayoutParams) mLeftView.getLayoutParams();
-		LayoutParams middlePaneLayoutParams = (LayoutParams) mMiddleView.getLayoutParams();
-		LayoutParams rightPaneLayoutParams  = (LayoutParams) mRightView.getLayoutParams();
-		
-		VisibilityState visibilityState = args.length == 0 ? mVisibilityState : args[0];
-	
-		if (args.length > 0) {
+		for (int i = 0; i < mPanes.length; i++) {
 			
-			leftPaneLayoutParams.width   = 0;
-			middlePaneLayoutParams.width = 0;
-			rightPaneLayoutParams.width  = 0;
+			int x = mGeometry.getX(state, i);
+			int width = mGeometry.getWidth(state, i);
+			
+			placePane(i, width, x, isOnScreenDuring(x, width, x, width));
+			mPanes[i].setTranslationX(0);
 		}
+	}
+	
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
 		
-		if ( visibilityState == VisibilityState.LEFT_VISIBLE ) {
-			
-			leftPaneLayoutParams.weight   = 1.0f; 
-			middlePaneLayoutParams.weight = 0.0f; 
-			rightPaneLayoutParams.weight  = 0.0f; 
+		int width = MeasureSpec.getSize(widthMeasureSpec);
+		int height = MeasureSpec.getSize(heightMeasureSpec);
+		
+		setMeasuredDimension(width, height);
+		
+		// The geometry only changes with the final size of the control, see onSizeChanged(). A measure at 
+		// another width (e.g. a parent that measures its children several times) keeps the panels as they are
+		if (mPlaceStatePending && mGeometry != null) {
+			placePendingState();
+		}
+		
+		mMeasureCount++;
+		mTransitionMeasures++;
+		
+		// Until the first layout the width of the panels is unknown, and if the width of the control is going
+		// to change the panels are placed again before the layout. In both cases they are only measured by
+		// onLayout(), at their final widths, so a resize or a rotation measures each panel once
+		if (mGeometry != null && width == mGeometry.getContainerWidth()) {
+			measurePanes(MeasureSpec.makeMeasureSpec(height, MeasureSpec.EXACTLY), true);
+		}
+	}
+	
+	/**
+	 * Measures the panels shown whose measure specs have changed since they were measured
+	 * 
+	 * @param heightSpec         Height measure spec of the panels
+	 * @param measureRequested   <i>true</i> to also measure the panels that have requested a layout
+	 */
+	private void measurePanes(int heightSpec, boolean measureRequested) {
+		
+		for (int i = 0; i < mPanes.length; i++) {
 			
-		} else if ( visibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE ) {
-
-			leftPaneLayoutParams.weight   = 0.35f;
-			middlePaneLayoutParams.weight = 0.65f;
-			rightPaneLayoutParams.weight  = 0.0f; 
+			if (!mPaneShown[i]) {
+				continue;
+			}
 			
-		} else if ( visibilityState == VisibilityState.MIDDLE_VISIBLE ) {
+			View pane = mPanes[i];
+			int widthSpec = MeasureSpec.makeMeasureSpec(mPaneLayoutWidth[i], MeasureSpec.EXACTLY);
 			
-			leftPaneLayoutParams.weight   = 0.0f; 
-			middlePaneLayoutParams.weight = 1.0f;
-			rightPaneLayoutParams.weight  = 0.0f;
+			if (PaneSupport.needsMeasure(pane, widthSpec, heightSpec, mPaneWidthSpecs[i], mPaneHeightSpecs[i], 
+					measureRequested)) {
+				
+				pane.measure(widthSpec, heightSpec);
+				mTransitionPaneMeasures++;
+				
+				mPaneWidthSpecs[i] = widthSpec;
+				mPaneHeightSpecs[i] = heightSpec;
+			}
+		}
+	}
+	
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+		super.onSizeChanged(w, h, oldw, oldh);
+		
+		// The size class and the geometry are chosen from the final size of the control, inside the layout 
+		// pass, so a size or orientation change is applied in a single pass: onLayout() measures again the 
+		// panels whose width has changed before laying them out
+		if (w > 0 && updateGeometry(w)) {
+			placePendingState();
+		}
+	}
+	
+	/**
+	 * Places the panels in the current state, without animation, cancelling the running transition
+	 */
+	private void placePendingState() {
+		
+		abortTransition();
+		placeState(mVisibilityState.ordinal());
+		
+		mPlaceStatePending = false;
+	}
+	
+	/**
+	 * Selects the position and width of the panels for every state from the final width of the control. When 
+	 * the width belongs to another size class the current state is first replaced by the one that corresponds 
+	 * to the new size class, so the panels are placed directly in it. The geometry is only created if it 
+	 * is not one of the last geometries used by the control.
+	 * 
+	 * @param width   Width of the control, greater than zero
+	 * @return        <i>true</i> if the geometry has changed
+	 */
+	private boolean updateGeometry(int width) {
+		
+		BreakpointPolicy.SizeClass sizeClass = mBreakpointPolicy.resolve(width / getResources().getDisplayMetrics().density);
+		
+		if (sizeClass != mSizeClass || !mSizeClassResolved) {
+			changeSizeClass(sizeClass);
+		}
+		
+		PaneGeometry geometry = obtainGeometry(width);
+		
+		if (geometry == mGeometry) {
+			return false;
+		}
+		
+		mGeometry = geometry;
+		
+		return true;
+	}
+	
+	/**
+	 * Returns the geometry of the panels for the current size class and the width received as parameter, 
+	 * creating it only if it is not in the cache of the control
+	 * 
+	 * @param width   Width of the control
+	 */
+	private PaneGeometry obtainGeometry(int width) {
+		
+		for (int i = 0; i < CACHED_GEOMETRIES; i++) {
 			
-		} else if ( visibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE ) {
+			PaneGeometry geometry = mGeometryCache[i];
 			
-			leftPaneLayoutParams.weight   = 0.0f;
-			middlePaneLayoutParams.weight = 0.35f;
-			rightPaneLayoutParams.weight  = 0.65f;
+			if (geometry != null && geometry.getContainerWidth() == width && geometry.getSizeClass() == mSizeClass) {
+				
+				// Move it to the first position
+				System.arraycopy(mGeometryCache, 0, mGeometryCache, 1, i);
+				mGeometryCache[0] = geometry;
+				
+				return geometry;
+			}
+		}
+		
+		PaneGeometry geometry = new PaneGeometry(width, mSizeClass);
+		
+		System.arraycopy(mGeometryCache, 0, mGeometryCache, 1, CACHED_GEOMETRIES - 1);
+		mGeometryCache[0] = geometry;
+		
+		return geometry;
+	}
+	
+	/**
+	 * Replaces the current state by the one that corresponds to the new size class, derived from the last 
+	 * state requested by the user (see {@link PaneGeometry#stateForSizeClass(int, int, int)}). The panels are 
+	 * placed by the caller together with the new geometry.
+	 * 
+	 * @param sizeClass   New size class of the control
+	 */
+	private void changeSizeClass(BreakpointPolicy.SizeClass sizeClass) {
+		
+		mSizeClass = sizeClass;
+		mSizeClassResolved = true;
+		
+		int newState = PaneGeometry.stateForSizeClass(mRequestedState, mRequestedMaxVisiblePanes, 
+				sizeClass.getMaxVisiblePanes());
+		
+		if (newState != mVisibilityState.ordinal()) {
 			
-		} else if ( visibilityState == VisibilityState.RIGHT_VISIBLE ) {
+			mVisibilityState = VISIBILITY_STATES[newState];
 			
-			leftPaneLayoutParams.weight   = 0.0f;
-			middlePaneLayoutParams.weight = 0.0f;
-			rightPaneLayoutParams.weight  = 1.0f;
+			// The observers are notified once the layout pass has ended, see abortTransition()
+			mTransitionFinishPending = true;
 		}
-		
-		// Refresh the view and compute the size of the view in the screen. 
-		requestLayout();
 	}
 	
 	/**
 	 * Method that performs the visibility state transition control (redistribution of the panels)
 	 * 
 	 * @param newVisibilityState   New visibility state required.
-	 * @param resetDimensions      This parameter is optional and should be used only when you are performing a 
-	 *                             state transcion due to a change of device orientation so we can recalculated 
-	 *                             weights and widths of the panels.
 	 */
-	public void setVisibilityState(VisibilityState newVisibilityState, boolean ... resetDimensions) {
+	public void setVisibilityState(VisibilityState newVisibilityState) {
+		setVisibilityState(newVisibilityState, false);
+	}
+	
+	/**
+	 * Method that performs the visibility state transition control (redistribution of the panels)
+	 * 
+	 * @param newVisibilityState   New visibility state required.
+	 * @param resetDimensions      <i>true</i> to place the panels in the new state without animation, 
+	 *                             calculating again their widths if the size of the control has changed
+	 */
+	public void setVisibilityState(VisibilityState newVisibilityState, boolean resetDimensions) {
 		
-		// Ignore the request if the control is being resized or if the requested state is equal to the current
-		if ( isScrollingViews || newVisibilityState == mVisibilityState ) {
+		if (mTracer == null) {
+			changeVisibilityState(newVisibilityState, resetDimensions);
 			return;
 		}
 		
-		// If requested any state that contains more than one panel and device orientation is portrait, 
-		// ignore the request (this control only supports multiple panels visible in landscape)
-		if (mScreenOrientation == Configuration.ORIENTATION_PORTRAIT) {
-			if ( newVisibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE || 
-				 newVisibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE ) {
-				return;
-			}
+		mTracer.beginSection("ThreePaneLayout.setVisibilityState");
+		
+		try {
+			changeVisibilityState(newVisibilityState, resetDimensions);
+		} finally {
+			mTracer.endSection();
+		}
+	}
+	
+	/**
+	 * Performs the visibility state transition requested through {@link #setVisibilityState(VisibilityState, boolean)}
+	 */
+	private void changeVisibilityState(VisibilityState newVisibilityState, boolean resetDimensions) {
+		
+		// Ignore the request if the requested state is equal to the current. If a transition is running, the
+		// current state is the one that the transition is moving to
+		if ( newVisibilityState == mVisibilityState ) {
+			return;
 		}
 		
-		if (resetDimensions.length > 0 && resetDimensions[0] == true) {
-			
-			configureWidth(newVisibilityState);
-			mMinPaneWidth = -1;
+		// If requested any state that contains more panels than the size class of the control can show, 
+		// ignore the request
+		if (PaneGeometry.getVisiblePanes(newVisibilityState.ordinal()) > mSizeClass.getMaxVisiblePanes()) {
+			mTransitionsDropped++;
+			return;
 		}
 		
-		// Calculate the maximum and minimum widths of the control panel if the have not been defined
-		if (mMinPaneWidth == -1) {
-			
-			DisplayMetrics displayMetrics = new DisplayMetrics();
-			WindowManager wm = (WindowManager) mContext.getSystemService(Context.WINDOW_SERVICE);
-			wm.getDefaultDisplay().getMetrics(displayMetrics);
-			int screenWidth = displayMetrics.widthPixels;
-			
-			if ( mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE ) {
-				
-				mMinPaneWidth    = (int) (screenWidth * 0.35);
-				mMaxPaneWidth    = screenWidth - mMinPaneWidth;
-				mFullScreenWidth = screenWidth;
-				
-			} else { // Configuration.ORIENTATION_PORTRAIT
-				
-				mMinPaneWidth = mMaxPaneWidth = mFullScreenWidth = screenWidth;
-			}
-			
-			resetWidget(mLeftView, mMinPaneWidth); 
-			resetWidget(mMiddleView, mMaxPaneWidth);
-			resetWidget(mRightView, mMaxPaneWidth);
+		mRequestedState = newVisibilityState.ordinal();
+		mRequestedMaxVisiblePanes = mSizeClass.getMaxVisiblePanes();
+		
+		if (resetDimensions) {
 			
+			// The next measure or layout places the panels in the new state, calculating the geometry 
+			// again if the width of the control has changed
+			abortTransition();
+			mPlaceStatePending = true;
 			requestLayout();
 		}
 		
-		isScrollingViews = true;
-		mHandler.postDelayed(new Runnable() {
-			
-			@Override
-			public void run() {
-				isScrollingViews = false;
-			}
-		}, ANIMATION_DURATION + 100);
+		VisibilityState currentVisibilityState = mVisibilityState;
 		
+		// Notify control observers will produce a state transition. The observers can add new observers
+		// (e.g. the fragment of a panel that is going to be visible), they are notified too
+		mStateListeners.dispatch(BEGIN_TRANSITION, LISTENER_BEGIN_TRANSITION, 
+				currentVisibilityState, newVisibilityState, mTracer);
 		
-		VisibilityState currentVisibilityState = mVisibilityState;
+		mTransitionFinishPending = true;
 		
-		// Notify control observers will produce a state transition 
-		if ( mStateListeners != null ) {
-			for ( OnStateChangeListener observer : mStateListeners ) {
-				observer.onBeginTransitionState(currentVisibilityState, newVisibilityState);
+		if (!resetDimensions) {
+			
+			if (mGeometry != null) {
+				// Perform the movement of the panels to match the new state required
+				animateVisibilityStateTransition(currentVisibilityState, newVisibilityState);
+			} else {
+				// The control has not been laid out yet, the first layout places the panels
+				mPlaceStatePending = true;
 			}
 		}
-		
-		if (resetDimensions.length == 0) {
-			// Perform the movement of the panels to match the new state required
-			animateVisibilityStateTransition(currentVisibilityState, newVisibilityState);			
-		}
 
 		// Update the reference to the current state
 		mVisibilityState = newVisibilityState;
 		
 		// Notify the new control state to the control's observers 
-		if ( mStateListeners != null ) {
-			for ( OnStateChangeListener observer : mStateListeners ) {
-				observer.onNewStateVisible(mVisibilityState);
-			}
+		mStateListeners.dispatch(NEW_STATE_VISIBLE, LISTENER_NEW_STATE_VISIBLE, mVisibilityState, null, mTracer);
+		
+		// Without animators running the panels are already in their final position
+		if (mRunningAnimators == 0) {
+			dispatchTransitionFinished();
 		}
 	}
 	
 	/**
-	 * Moves on the x axis and resize the panels to suit new visibility state required.
+	 * Moves the control to the state that corresponds to the navigation control received as parameter, 
+	 * as {@link #setVisibilityState(VisibilityState)} does. The new state is looked up in a table built 
+	 * when the class is loaded.
 	 * 
-	 * @param currentVisibilityState    Current state control visibility
-	 * @param requiredVisibilityState   New visibility state required
+	 * @param direction   Navigation control used
+	 * @return            The new state, or null if the navigation control does not change the state
 	 */
-	private void animateVisibilityStateTransition(VisibilityState currentVisibilityState, 
-			VisibilityState requiredVisibilityState) {
+	public VisibilityState navigate(Direction direction) {
 		
-		switch (requiredVisibilityState) {
+		VisibilityState target = getNavigationTarget(direction);
 		
-		case LEFT_VISIBLE:
+		if (target != null) {
+			setVisibilityState(target);
+		}
 		
-			if (mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
-			
-				if (currentVisibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
+		return target;
+	}
+	
+	/**
+	 * Returns the state to which {@link #navigate(Direction)} would move the control, without changing it
+	 * (e.g. to prepare the panels that are going to be shown when a navigation control is touched)
+	 * 
+	 * @param direction   Navigation control
+	 * @return            The new state, or null if the navigation control does not change the state
+	 */
+	public VisibilityState getNavigationTarget(Direction direction) {
+		return NAVIGATION_TABLE[mSizeClass.getMaxVisiblePanes() - 1][direction.ordinal()][mVisibilityState.ordinal()];
+	}
+	
+	/**
+	 * Notifies the observers that the panels have reached the position of the current state, 
+	 * only once per transition
+	 */
+	private void dispatchTransitionFinished() {
+		
+		if (!mTransitionFinishPending) {
+			return;
+		}
+		
+		mTransitionFinishPending = false;
+		
+		mStateListeners.dispatch(TRANSITION_FINISHED, LISTENER_TRANSITION_FINISHED, mVisibilityState, null, mTracer);
+	}
+	
+	/**
+	 * Moves on the x axis and resize the panels to suit new visibility state required. If there is a 
+	 * transition running, it is retargeted: the new transition starts from the current on screen position 
+	 * of the panels, so several requests made in a short time are joined in a single movement.
+	 * 
+	 * @param currentVisibilityState    Current state control visibility
+	 * @param requiredVisibilityState   New visibility state required
+	 */
+	private void animateVisibilityStateTransition(VisibilityState currentVisibilityState, 
+			VisibilityState requiredVisibilityState) {
+		
+		if (mTracer == null) {
+			startVisibilityStateTransition(currentVisibilityState, requiredVisibilityState);
+			return;
+		}
+		
+		mTracer.beginSection("ThreePaneLayout.animateVisibilityStateTransition");
+		
+		try {
+			startVisibilityStateTransition(currentVisibilityState, requiredVisibilityState);
+		} finally {
+			mTracer.endSection();
+		}
+	}
+	
+	/**
+	 * Starts the transition requested through {@link #animateVisibilityStateTransition(VisibilityState, VisibilityState)}
+	 */
+	private void startVisibilityStateTransition(VisibilityState currentVisibilityState, 
+			VisibilityState requiredVisibilityState) {
+		
+		captureCurrentGeometry();
+		cancelRunningTransition();
+		
+		// The metrics of the previous transition are published before its counters are reset, even if 
+		// its final layout has not been done yet
+		flushTransitionMetrics();
+		
+		mTransitionTo = requiredVisibilityState.ordinal();
+		mRunningMode = mTransitionMode;
+		
+		mTransitionMeasures = 0;
+		mTransitionLayouts = 0;
+		mTransitionPaneMeasures = 0;
+		mTransitionPaneLayouts = 0;
+		
+		if (mRunningMode == TransitionMode.RELAYOUT) {
+			animateRelayoutTransition();
+		} else {
+			animateLayoutFreeTransition();
+		}
+		
+		if (mRunningAnimators == 0) {
+			// Nothing to animate, the panels were already in place (e.g. a drag that returned to its origin)
+			releasePaneLayers();
+			return;
+		}
+		
+		if (mRunningMode == TransitionMode.SNAPSHOT) {
+			// The snapshots replace the layers, they are rendered with the panels in their transition bounds
+			releasePaneLayers();
+			mCaptureSnapshotsOnLayout = true;
+		} else {
+			preparePaneLayers();
+		}
+		
+		mTransitionsStarted++;
+		mTransitionStartNanos = System.nanoTime();
+		
+		if (mTransitionMetricsListener != null 
+				&& Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			
+			if (mFrameRecorder == null) {
+				mFrameRecorder = new TransitionFrameRecorder();
+			}
+			
+			mFrameRecorder.start(currentVisibilityState, requiredVisibilityState);
+		}
+	}
+	
+	/**
+	 * Stores the current on screen position and width of the panels as the starting point of a transition
+	 */
+	private void captureCurrentGeometry() {
+		
+		if (mRunningAnimators == 0 && !mDragging) {
+			
+			int state = mVisibilityState.ordinal();
+			
+			for (int i = 0; i < mPanes.length; i++) {
+				mStartX[i] = mGeometry.getX(state, i);
+				mStartWidth[i] = mGeometry.getWidth(state, i);
+			}
+			
+			return;
+		}
+		
+		// The translate and clip mode draws the panels narrower than their layout width
+		boolean clipped = mDragging || mRunningMode != TransitionMode.RELAYOUT;
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			mStartX[i] = mPaneLayoutLeft[i] + mPanes[i].getTranslationX();
+			mStartWidth[i] = clipped ? mPaneClipWidth[i] : mPaneLayoutWidth[i];
+		}
+	}
+	
+	/**
+	 * Cancels the animators of the running transition without applying its final state, so a new 
+	 * transition can start from the current position of the panels.
+	 */
+	private void cancelRunningTransition() {
+		
+		if (mRunningAnimators == 0) {
+			return;
+		}
+		
+		mTransitionsDropped++;
+		mCancellingTransition = true;
+		
+		if (mTransitionAnimator != null) {
+			mTransitionAnimator.cancel();
+		}
+		
+		mCancellingTransition = false;
+		mRunningAnimators = 0;
+		mClipPanes = false;
+		
+		releaseSnapshots();
+	}
+	
+	/**
+	 * Cancels the running transition releasing the resources it uses. Used when the dimensions of the 
+	 * panels are going to be reset. 
+	 */
+	private void abortTransition() {
+		
+		cancelRunningTransition();
+		releasePaneLayers();
+		flushTransitionMetrics();
+		
+		if (mFrameRecorder != null && mFrameRecorder.isRecording()) {
+			mFrameRecorder.stop();
+		}
+		
+		// The observers are notified outside of the measure or layout pass that may have aborted the transition
+		if (mTransitionFinishPending) {
+			post(mDispatchTransitionFinished);
+		}
+	}
+	
+	/**
+	 * Performs the transition to the state {@link #mTransitionTo} animating the widths of the panels, 
+	 * which implies a layout pass on every frame.
+	 */
+	private void animateRelayoutTransition() {
+		
+		mClipPanes = false;
+		
+		boolean changed = mStartX[PaneGeometry.LEFT_PANE] != mGeometry.getX(mTransitionTo, PaneGeometry.LEFT_PANE);
+		int left = 0;
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			int startWidth = Math.round(mStartWidth[i]);
+			
+			// The panels are laid out one after another and share the same translation, so none 
+			// of them can be removed from the layout
+			placePane(i, startWidth, left, true);
+			left += startWidth;
+			
+			mStartWidth[i] = startWidth;
+			changed |= startWidth != mGeometry.getWidth(mTransitionTo, i);
+		}
+		
+		// Requests the layout of the first frame
+		applyRelayoutFrame(0f);
+		
+		if (changed) {
+			startTransitionAnimator();
+		} else {
+			// The panels are already in the final position, the ones outside the control leave the layout
+			placeState(mTransitionTo);
+		}
+	}
+	
+	/**
+	 * Sets the widths and the translation of the panels that correspond to the fraction of the relayout 
+	 * transition received as parameter
+	 * 
+	 * @param fraction   Elapsed fraction of the transition, between 0 and 1
+	 */
+	private void applyRelayoutFrame(float fraction) {
+		
+		// The panels are laid out one after another, so moving the whole set only requires to 
+		// translate all of them by the position of the left panel
+		float startX = mStartX[PaneGeometry.LEFT_PANE];
+		float x = startX + (mGeometry.getX(mTransitionTo, PaneGeometry.LEFT_PANE) - startX) * fraction;
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			float width = mStartWidth[i] + (mGeometry.getWidth(mTransitionTo, i) - mStartWidth[i]) * fraction;
+			
+			PANE_WIDTH.set(this, i, width);
+			PANE_TRANSLATION_X.set(this, i, x);
+		}
+		
+		layoutPanesSideBySide();
+	}
+	
+	/**
+	 * Places the panels in the final state once the relayout transition has ended. During the transition all 
+	 * the panels take part in the layout, so the ones outside the control are removed from it with one more 
+	 * layout pass.
+	 */
+	private void finishRelayoutTransition() {
+		
+		placeState(mTransitionTo);
+		requestLayout();
+	}
+	
+	/**
+	 * Performs the transition to the state {@link #mTransitionTo} without measure or layout passes while 
+	 * the animation runs. Each panel is laid out once in its final position with the greatest of its initial 
+	 * and final widths, the intermediate frames only update the translation and the clip width of the panels.
+	 */
+	private void animateLayoutFreeTransition() {
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			int endX = mGeometry.getX(mTransitionTo, i);
+			int endWidth = mGeometry.getWidth(mTransitionTo, i);
+			
+			int width = Math.max((int) Math.ceil(mStartWidth[i]), endWidth);
+			boolean shown = isOnScreenDuring(mStartX[i], mStartWidth[i], endX, endWidth);
+			
+			placePane(i, width, endX, shown);
+		}
+		
+		// Single layout pass, the panels keep these widths until the animation ends
+		requestLayout();
+		
+		mClipPanes = true;
+		applyTransitionFrame(0f);
+		
+		startTransitionAnimator();
+	}
+	
+	/**
+	 * Starts the animator of the transition to the state {@link #mTransitionTo}. The animator is created 
+	 * the first time and reused by the following transitions of any mode.
+	 */
+	private void startTransitionAnimator() {
+		
+		if (mTransitionAnimator == null) {
+			
+			mTransitionAnimator = ValueAnimator.ofFloat(0f, 1f);
+			mTransitionAnimator.setDuration(ANIMATION_DURATION);
+			
+			mTransitionAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+				@Override
+				public void onAnimationUpdate(ValueAnimator animation) {
 					
-					ObjectAnimator.ofInt(this, "leftWidth", mMinPaneWidth, mFullScreenWidth)
-							.setDuration(ANIMATION_DURATION).start();
+					if (mRunningMode == TransitionMode.RELAYOUT) {
+						applyRelayoutFrame(animation.getAnimatedFraction());
+					} else {
+						applyTransitionFrame(animation.getAnimatedFraction());
+					}
 				}
-				
-			} else { // Configuration.ORIENTATION_PORTRAIT
-				
-				if (currentVisibilityState == VisibilityState.MIDDLE_VISIBLE) {
-					
-					translateView(mMaxPaneWidth, mLeftView, mMiddleView, mRightView);
+			});
+			
+			mTransitionAnimator.addListener(new AnimatorListenerAdapter() {
+				@Override
+				public void onAnimationEnd(Animator animation) {
 					
-				} else if (currentVisibilityState == VisibilityState.RIGHT_VISIBLE) {
+					if (mCancellingTransition) {
+						return;
+					}
 					
-					translateView(2 * mMaxPaneWidth, mLeftView, mMiddleView, mRightView);
+					if (mRunningMode == TransitionMode.RELAYOUT) {
+						finishRelayoutTransition();
+					} else {
+						finishLayoutFreeTransition();
+					}
 				}
-			} 
-
+			});
+			
+			mTransitionAnimator.addListener(mAnimatorEndListener);
+		}
+		
+		startTrackedAnimator(mTransitionAnimator);
+	}
+	
+	/**
+	 * Places the panels in the position that corresponds to the fraction of the transition received 
+	 * as parameter. Only translations and clip widths are updated, so no layout is requested.
+	 * 
+	 * @param fraction   Elapsed fraction of the transition, between 0 and 1
+	 */
+	private void applyTransitionFrame(float fraction) {
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			float x = PaneSupport.interpolate(mStartX[i], mGeometry.getX(mTransitionTo, i), fraction);
+			
+			PaneSupport.translate(mPanes[i], mPaneLayoutLeft[i], x);
+			mPaneClipWidth[i] = PaneSupport.interpolate(mStartWidth[i], mGeometry.getWidth(mTransitionTo, i), fraction);
+		}
+		
+		invalidate();
+	}
+	
+	/**
+	 * Sets the final widths and positions of the panels once the translate and clip transition 
+	 * has ended. The control is laid out again only if some panel has shrunk or has left the control.
+	 */
+	private void finishLayoutFreeTransition() {
+		
+		mClipPanes = false;
+		
+		boolean layoutChanged = false;
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			int x = mGeometry.getX(mTransitionTo, i);
+			int width = mGeometry.getWidth(mTransitionTo, i);
+			boolean shown = isOnScreenDuring(x, width, x, width);
+			
+			if (mPaneLayoutWidth[i] != width || mPaneLayoutLeft[i] != x || mPaneShown[i] != shown) {
+				layoutChanged = true;
+			}
+			
+			placePane(i, width, x, shown);
+			mPanes[i].setTranslationX(0);
+		}
+		
+		if (layoutChanged) {
+			requestLayout();
+		}
+		
+		invalidate();
+	}
+	
+	/**
+	 * Sets the bounds assigned by the layout to a panel. Panels that are not shown are neither measured, 
+	 * laid out nor drawn, and they are made invisible. The changes of the bounds are applied in the next 
+	 * layout pass.
+	 * 
+	 * @param pane    Position of the panel
+	 * @param width   Layout width of the panel
+	 * @param left    Left edge assigned by the layout to the panel
+	 * @param shown   <i>true</i> if the panel is inside the control at some moment
+	 */
+	private void placePane(int pane, int width, int left, boolean shown) {
+		
+		// The position of the panels that are not shown is also kept, so their translation always 
+		// reflects their real position and a transition can start from it
+		mPaneLayoutLeft[pane] = left;
+		mPaneLayoutWidth[pane] = width;
+		mPaneShown[pane] = shown;
+		
+		// A panel that is not shown keeps the frame of its last layout, which can be inside the control. 
+		// Making it invisible stops it from receiving touches, focus and accessibility events there, and 
+		// unlike GONE it does not request a layout
+		int visibility = shown ? VISIBLE : INVISIBLE;
+		
+		if (mPanes[pane].getVisibility() != visibility) {
+			mPanes[pane].setVisibility(visibility);
+		}
+	}
+	
+	/**
+	 * Checks if a panel that moves linearly between the two bounds received as parameter is inside the 
+	 * control at some moment of the movement
+	 */
+	private boolean isOnScreenDuring(float startX, float startWidth, float endX, float endWidth) {
+		
+		int containerWidth = mGeometry.getContainerWidth();
+		
+		boolean leftOfScreen = startX + startWidth <= 0 && endX + endWidth <= 0;
+		boolean rightOfScreen = startX >= containerWidth && endX >= containerWidth;
+		
+		return !leftOfScreen && !rightOfScreen;
+	}
+	
+	/**
+	 * Checks if a panel is inside the control at some moment of the transition between two states
+	 * 
+	 * @param pane   Position of the panel
+	 * @param from   Initial state
+	 * @param to     Final state, or -1 to check only the initial state
+	 */
+	private boolean isPaneOnScreenDuring(int pane, int from, int to) {
+		
+		if (to == -1) {
+			to = from;
+		}
+		
+		return isOnScreenDuring(mGeometry.getX(from, pane), mGeometry.getWidth(from, pane), 
+				mGeometry.getX(to, pane), mGeometry.getWidth(to, pane));
+	}
+	
+	/**
+	 * Starts the animator received as parameter counting it as one of the running animators of the 
+	 * transition. The animator must have {@link #mAnimatorEndListener} among its listeners.
+	 * 
+	 * @param animator   Animator to start
+	 */
+	private void startTrackedAnimator(Animator animator) {
+		
+		mRunningAnimators++;
+		animator.start();
+	}
+	
+	/**
+	 * Promotes the panels to hardware layers according to the layer policy of the control. With the policy
+	 * {@link LayerPolicy#HARDWARE_PREWARMED} the layers are built right away, or just after the pending layout
+	 * pass if the transition has changed the size of the panels.
+	 */
+	private void preparePaneLayers() {
+		
+		if (mLayerPolicy == LayerPolicy.NONE) {
+			return;
+		}
+		
+		for (View pane : mPanes) {
+			
+			if (pane.getLayerType() != View.LAYER_TYPE_HARDWARE) {
+				pane.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+			}
+		}
+		
+		if (mLayerPolicy == LayerPolicy.HARDWARE_PREWARMED) {
+			
+			if (isLayoutRequested()) {
+				mBuildLayersOnLayout = true;
+			} else {
+				buildPaneLayers();
+			}
+		}
+	}
+	
+	/**
+	 * Renders the layers of the panels so the first frame of the transition only has to composite them 
+	 */
+	private void buildPaneLayers() {
+		
+		if (getWindowToken() == null) {
+			return;
+		}
+		
+		for (View pane : mPanes) {
+			pane.buildLayer();
+		}
+	}
+	
+	/**
+	 * Ends the recording of the frames of the transition and sends the measurements to the metrics listener
+	 */
+	private void publishTransitionMetrics() {
+		
+		if (mFrameRecorder == null || !mFrameRecorder.isRecording()) {
+			return;
+		}
+		
+		TransitionMetrics metrics = mFrameRecorder.stop();
+		
+		metrics.mMeasureCount = mTransitionMeasures;
+		metrics.mLayoutCount = mTransitionLayouts;
+		metrics.mPaneMeasureCount = mTransitionPaneMeasures;
+		metrics.mPaneLayoutCount = mTransitionPaneLayouts;
+		
+		if (mTransitionMetricsListener != null) {
+			mTransitionMetricsListener.onTransitionMetrics(metrics);
+		}
+	}
+	
+	/**
+	 * Publishes the metrics of the last transition if they are waiting for its final layout pass
+	 */
+	private void flushTransitionMetrics() {
+		
+		if (mPublishMetricsOnLayout) {
+			mPublishMetricsOnLayout = false;
+			publishTransitionMetrics();
+		}
+	}
+	
+	/**
+	 * Releases the layers of the panels once the transition has finished
+	 */
+	private void releasePaneLayers() {
+		
+		mBuildLayersOnLayout = false;
+		
+		if (mLayerPolicy == LayerPolicy.NONE) {
+			return;
+		}
+		
+		for (View pane : mPanes) {
+			pane.setLayerType(View.LAYER_TYPE_NONE, null);
+		}
+	}
+	
+	@Override
+	protected void onLayout(boolean changed, int l, int t, int r, int b) {
+		
+		mLayoutCount++;
+		mTransitionLayouts++;
+		
+		// Without a geometry (e.g. the breakpoint policy has changed) it is chosen from the current width
+		if (mGeometry == null && r - l > 0) {
+			updateGeometry(r - l);
+			mPlaceStatePending = true;
+		}
+		
+		if (mPlaceStatePending && mGeometry != null) {
+			placePendingState();
+		}
+		
+		// The panels are measured again if their bounds have changed after the measure pass, when the 
+		// final size of the control was still unknown
+		measurePanes(MeasureSpec.makeMeasureSpec(b - t, MeasureSpec.EXACTLY), false);
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			if (mPaneShown[i]) {
+				
+				View pane = mPanes[i];
+				int left = mPaneLayoutLeft[i];
+				
+				pane.layout(left, 0, left + pane.getMeasuredWidth(), pane.getMeasuredHeight());
+				mTransitionPaneLayouts++;
+			}
+		}
+		
+		if (mBuildLayersOnLayout) {
+			mBuildLayersOnLayout = false;
+			buildPaneLayers();
+		}
+		
+		if (mCaptureSnapshotsOnLayout) {
+			mCaptureSnapshotsOnLayout = false;
+			captureSnapshots();
+		}
+		
+		// Last pass of the transition, see mAnimatorEndListener
+		flushTransitionMetrics();
+	}
+	
+	/**
+	 * Renders into a bitmap each panel that takes part in the running snapshot transition. The panels 
+	 * whose bitmap does not fit in the memory limit of the pool are drawn live.
+	 */
+	private void captureSnapshots() {
+		
+		if (mRunningAnimators == 0) {
+			return;
+		}
+		
+		if (mSnapshotPool == null) {
+			mSnapshotPool = new BitmapPool(getSnapshotMemoryLimit());
+			mSnapshotCanvas = new Canvas();
+		}
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			View pane = mPanes[i];
+			
+			if (!mPaneShown[i] || pane.getWidth() == 0 || pane.getHeight() == 0) {
+				continue;
+			}
+			
+			Bitmap snapshot = mSnapshotPool.obtain(pane.getWidth(), pane.getHeight());
+			
+			if (snapshot != null) {
+				
+				mSnapshotCanvas.setBitmap(snapshot);
+				pane.draw(mSnapshotCanvas);
+				
+				mSnapshots[i] = snapshot;
+			}
+		}
+		
+		invalidate();
+	}
+	
+	/**
+	 * Returns the bitmaps of the last snapshot transition to the pool
+	 */
+	private void releaseSnapshots() {
+		
+		for (int i = 0; i < mSnapshots.length; i++) {
+			
+			if (mSnapshots[i] != null) {
+				mSnapshotPool.release(mSnapshots[i]);
+				mSnapshots[i] = null;
+			}
+		}
+		
+		mCaptureSnapshotsOnLayout = false;
+	}
+	
+	/**
+	 * Sets the maximum memory used by the bitmaps of the snapshot transitions, including the bitmaps 
+	 * kept for the following transitions. By default it is an eighth of the memory available to the 
+	 * application.
+	 * 
+	 * @param bytes   Memory limit in bytes
+	 */
+	public void setSnapshotMemoryLimit(int bytes) {
+		
+		mSnapshotMemoryLimit = bytes;
+		
+		if (mSnapshotPool != null) {
+			mSnapshotPool.setMaxBytes(bytes);
+		}
+	}
+	
+	public int getSnapshotMemoryLimit() {
+		
+		if (mSnapshotMemoryLimit < 0) {
+			return (int) Math.min(Runtime.getRuntime().maxMemory() / 8, Integer.MAX_VALUE);
+		}
+		
+		return mSnapshotMemoryLimit;
+	}
+	
+	@Override
+	public boolean onInterceptTouchEvent(MotionEvent event) {
+		
+		switch (event.getActionMasked()) {
+		
+		case MotionEvent.ACTION_DOWN:
+			
+			mDownX = event.getX();
+			mDownY = event.getY();
+			mEdgeTouched = mRunningAnimators == 0 && isNearPaneEdge(mDownX);
+			
+			if (mEdgeTouched) {
+				trackVelocity(event, true);
+			}
+			
 			break;
 			
-		case LEFT_AND_MIDDLE_VISIBLE:
-			// Este estado solo es posible en orientacion panoramica
+		case MotionEvent.ACTION_MOVE:
+			
+			if (mEdgeTouched && !mDragging) {
+				
+				trackVelocity(event, false);
+				
+				float dx = Math.abs(event.getX() - mDownX);
+				
+				if (dx > mTouchSlop && dx > Math.abs(event.getY() - mDownY)) {
+					startDrag();
+				}
+			}
+			
+			break;
+			
+		case MotionEvent.ACTION_UP:
+		case MotionEvent.ACTION_CANCEL:
+			
+			mEdgeTouched = false;
+			break;
+		}
+		
+		return mDragging;
+	}
+	
+	@Override
+	public boolean onTouchEvent(MotionEvent event) {
+		
+		switch (event.getActionMasked()) {
+		
+		case MotionEvent.ACTION_DOWN:
+			
+			// No child has consumed the touch, keep receiving the events if it can start a drag
+			mDownX = event.getX();
+			mDownY = event.getY();
+			mEdgeTouched = mRunningAnimators == 0 && isNearPaneEdge(mDownX);
+			
+			if (mEdgeTouched) {
+				trackVelocity(event, true);
+			}
+			
+			return mEdgeTouched;
+			
+		case MotionEvent.ACTION_MOVE:
+			
+			if (!mEdgeTouched) {
+				return false;
+			}
+			
+			trackVelocity(event, false);
+			
+			if (!mDragging) {
+				
+				float dx = Math.abs(event.getX() - mDownX);
+				
+				if (dx > mTouchSlop && dx > Math.abs(event.getY() - mDownY)) {
+					startDrag();
+				}
+			}
+			
+			if (mDragging) {
+				applyDragFrame(event.getX() - mDownX);
+			}
+			
+			return true;
+			
+		case MotionEvent.ACTION_UP:
+		case MotionEvent.ACTION_CANCEL:
+			
+			if (mDragging) {
+				trackVelocity(event, false);
+				endDrag(event.getActionMasked() == MotionEvent.ACTION_CANCEL);
+			}
+			
+			mEdgeTouched = false;
+			return true;
+		}
+		
+		return mEdgeTouched;
+	}
+	
+	/**
+	 * Adds the event to the velocity tracker of the drag
+	 * 
+	 * @param event   Touch event
+	 * @param reset   <i>true</i> if the event starts a new gesture
+	 */
+	private void trackVelocity(MotionEvent event, boolean reset) {
+		
+		if (mVelocityTracker == null) {
+			mVelocityTracker = VelocityTracker.obtain();
+		} else if (reset) {
+			mVelocityTracker.clear();
+		}
+		
+		mVelocityTracker.addMovement(event);
+	}
+	
+	/**
+	 * Checks if the position received as parameter is close to the edge of a visible panel
+	 * 
+	 * @param x   Position on the x axis of the touch
+	 */
+	private boolean isNearPaneEdge(float x) {
+		
+		if (mGeometry == null) {
+			return false;
+		}
+		
+		int state = mVisibilityState.ordinal();
+		int width = getWidth();
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			
+			int left = mGeometry.getX(state, i);
+			int right = left + mGeometry.getWidth(state, i);
 			
-			if (currentVisibilityState == VisibilityState.MIDDLE_VISIBLE) {
-				
-				translateView(mMinPaneWidth, mLeftView, mMiddleView, mRightView);
-				
-				ObjectAnimator.ofInt(this, "middleWidth", mFullScreenWidth, mMaxPaneWidth)
-						.setDuration(ANIMATION_DURATION).start();
-
-			} else if (currentVisibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-				
-				translateView(mMinPaneWidth, mLeftView, mMiddleView, mRightView);
-
-				ObjectAnimator.ofInt(this, "middleWidth", mMinPaneWidth, mMaxPaneWidth)
-						.setDuration(ANIMATION_DURATION).start();
-				
-			} else if (currentVisibilityState == VisibilityState.LEFT_VISIBLE) {
-
-				ObjectAnimator.ofInt(this, "leftWidth", mFullScreenWidth, mMinPaneWidth)
-						.setDuration(ANIMATION_DURATION).start();
+			if ( (left >= 0 && left <= width && Math.abs(x - left) <= mEdgeTouchWidth) || 
+				 (right >= 0 && right <= width && Math.abs(x - right) <= mEdgeTouchWidth) ) {
+				return true;
 			}
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Prepares the panels to follow the finger. The panels are laid out once, wide enough for the current 
+	 * state and its two adjacent states, so the drag only needs to translate and clip them. 
+	 */
+	private void startDrag() {
+		
+		mDragging = true;
+		mDragFraction = 0;
+		
+		if (getParent() != null) {
+			getParent().requestDisallowInterceptTouchEvent(true);
+		}
+		
+		int maxVisiblePanes = mGeometry.getMaxVisiblePanes();
+		int state = mVisibilityState.ordinal();
+		
+		mDragPreviousState = PaneGeometry.adjacentState(state, -1, maxVisiblePanes);
+		mDragNextState = PaneGeometry.adjacentState(state, 1, maxVisiblePanes);
+		
+		for (int i = 0; i < mPanes.length; i++) {
 			
-			break;
+			int width = mGeometry.getWidth(state, i);
 			
-		case MIDDLE_VISIBLE:
+			if (mDragPreviousState != -1) {
+				width = Math.max(width, mGeometry.getWidth(mDragPreviousState, i));
+			}
 			
-			if (mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) { 
-				
-				if (currentVisibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
-					
-					translateView(-1 * mMinPaneWidth, mLeftView, mMiddleView, mRightView);
-					
-					ObjectAnimator.ofInt(this, "middleWidth", mMaxPaneWidth, mFullScreenWidth)
-							.setDuration(ANIMATION_DURATION).start();
-				
-				} else if (currentVisibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-					
-					ObjectAnimator.ofInt(this, "middleWidth", mMinPaneWidth, mFullScreenWidth)
-							.setDuration(ANIMATION_DURATION).start();
-				}
-				
-			} else { // Configuration.ORIENTATION_PORTRAIT
-				
-				if (currentVisibilityState == VisibilityState.LEFT_VISIBLE) {
-					
-					translateView(-1 * mMaxPaneWidth, mLeftView, mMiddleView, mRightView);
-					
-				} else if (currentVisibilityState == VisibilityState.RIGHT_VISIBLE) {
-					
-					translateView(mMaxPaneWidth, mLeftView, mMiddleView, mRightView);
-				}
-				
+			if (mDragNextState != -1) {
+				width = Math.max(width, mGeometry.getWidth(mDragNextState, i));
 			}
 			
-			break;
+			mStartX[i] = mGeometry.getX(state, i);
+			mStartWidth[i] = mGeometry.getWidth(state, i);
 			
-		case MIDDLE_AND_RIGHT_VISIBLE:
-			// Este estado solo es posible en orientacion panoramica
+			boolean shown = isPaneOnScreenDuring(i, state, mDragPreviousState) 
+					|| isPaneOnScreenDuring(i, state, mDragNextState);
 			
-			if (currentVisibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
-				
-				translateView(-1 * mMinPaneWidth, mLeftView, mMiddleView, mRightView);
-
-				ObjectAnimator.ofInt(this, "middleWidth", mMaxPaneWidth, mMinPaneWidth)
-						.setDuration(ANIMATION_DURATION).start();
-
-			} else if (currentVisibilityState == VisibilityState.MIDDLE_VISIBLE) {
-
-				ObjectAnimator.ofInt(this, "middleWidth", mFullScreenWidth, mMinPaneWidth)
-						.setDuration(ANIMATION_DURATION).start();
-				
+			placePane(i, width, mGeometry.getX(state, i), shown);
+		}
+		
+		requestLayout();
+		
+		mRunningMode = TransitionMode.TRANSLATE_AND_CLIP;
+		mTransitionTo = state;
+		mClipPanes = true;
+		
+		applyTransitionFrame(0f);
+		preparePaneLayers();
+	}
+	
+	/**
+	 * Places the panels between the current state and the adjacent state in the direction of the drag
+	 * 
+	 * @param dx   Distance on the x axis from the point where the drag started
+	 */
+	private void applyDragFrame(float dx) {
+		
+		int from = mVisibilityState.ordinal();
+		
+		// Moving the finger to the left brings the panels on the right
+		int to = dx < 0 ? mDragNextState : mDragPreviousState;
+		
+		if (to == -1) {
+			to = from;
+			mDragFraction = 0;
+		} else {
 			
-			} else if (currentVisibilityState == VisibilityState.RIGHT_VISIBLE) {
-				
-				translateView(mMinPaneWidth, mLeftView, mMiddleView, mRightView);
-
-				ObjectAnimator.ofInt(this, "rightWidth", mFullScreenWidth, mMaxPaneWidth)
-						.setDuration(ANIMATION_DURATION).start();
+			// The distance of the drag is the longest displacement of a panel between both states
+			int distance = 0;
+			
+			for (int i = 0; i < mPanes.length; i++) {
+				distance = Math.max(distance, Math.abs(mGeometry.getX(to, i) - mGeometry.getX(from, i)));
 			}
 			
-			break;
+			mDragFraction = distance == 0 ? 0 : Math.min(1f, Math.abs(dx) / distance);
+		}
+		
+		mTransitionTo = to;
+		applyTransitionFrame(mDragFraction);
+	}
+	
+	/**
+	 * Ends the drag moving the panels to the nearest state or, if the panels were flung, to the adjacent 
+	 * state in the direction of the fling.
+	 * 
+	 * @param cancelled   <i>true</i> if the gesture was cancelled, the panels return to the current state
+	 */
+	private void endDrag(boolean cancelled) {
+		
+		int state = mVisibilityState.ordinal();
+		int target = state;
+		
+		if (!cancelled) {
 			
-		case RIGHT_VISIBLE:
+			mVelocityTracker.computeCurrentVelocity(1000, mMaximumFlingVelocity);
+			float velocity = mVelocityTracker.getXVelocity();
 			
-			if (mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) { 
-				
-				if (currentVisibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-					
-					translateView(-1 * mMinPaneWidth, mLeftView, mMiddleView, mRightView);
-
-					ObjectAnimator.ofInt(this, "rightWidth", mMaxPaneWidth, mFullScreenWidth)
-							.setDuration(ANIMATION_DURATION).start();
-				}
-				
-			} else { // Configuration.ORIENTATION_PORTRAIT
-				
-				if (currentVisibilityState == VisibilityState.LEFT_VISIBLE) {
-					
-					translateView(-2 * mMaxPaneWidth, mLeftView, mMiddleView, mRightView);
-					
-				} else if (currentVisibilityState == VisibilityState.MIDDLE_VISIBLE) {
-					
-					translateView(-1 * mMaxPaneWidth, mLeftView, mMiddleView, mRightView);
-				}
+			if (Math.abs(velocity) > mMinimumFlingVelocity) {
+				target = velocity < 0 ? mDragNextState : mDragPreviousState;
+			} else if (mDragFraction > 0.5f) {
+				target = mTransitionTo;
 			}
 			
-			break;
+			if (target == -1) {
+				target = state;
+			}
+		}
+		
+		// The transition starts from the position where the drag has left the panels
+		if (target == state) {
+			
+			mTransitionFinishPending = true;
+			animateVisibilityStateTransition(mVisibilityState, mVisibilityState);
+			
+			if (mRunningAnimators == 0) {
+				dispatchTransitionFinished();
+			}
+			
+		} else {
+			setVisibilityState(VISIBILITY_STATES[target]);
+		}
+		
+		mDragging = false;
+	}
+	
+	@Override
+	protected Parcelable onSaveInstanceState() {
+		
+		SavedState savedState = new SavedState(super.onSaveInstanceState());
+		
+		// If a transition is running, the state saved is the one that the transition is moving to
+		savedState.visibilityState = mVisibilityState.ordinal();
+		savedState.maxVisiblePanes = mSizeClass.getMaxVisiblePanes();
+		savedState.requestedState = mRequestedState;
+		savedState.requestedMaxVisiblePanes = mRequestedMaxVisiblePanes;
+		
+		return savedState;
+	}
+	
+	@Override
+	protected void onRestoreInstanceState(Parcelable state) {
+		
+		if (!(state instanceof SavedState)) {
+			super.onRestoreInstanceState(state);
+			return;
+		}
+		
+		SavedState savedState = (SavedState) state;
+		super.onRestoreInstanceState(savedState.getSuperState());
+		
+		abortTransition();
+		
+		mRequestedState = savedState.requestedState;
+		mRequestedMaxVisiblePanes = savedState.requestedMaxVisiblePanes;
+		mVisibilityState = VISIBILITY_STATES[savedState.visibilityState];
+		
+		// The size class estimated from the display can be different from the real one, so the restored state 
+		// is only replaced once the real width of the control is known: by the first layout if the control 
+		// has not been laid out yet, or right now with the size class of its current width
+		if (mSizeClassResolved && savedState.maxVisiblePanes != mSizeClass.getMaxVisiblePanes()) {
+			changeSizeClass(mSizeClass);
+		}
+		
+		if (mGeometry != null) {
+			placeState(mVisibilityState.ordinal());
+			requestLayout();
+		} else {
+			mPlaceStatePending = true;
+		}
+		
+		// The observers are notified once the activity has finished restoring its state
+		mTransitionFinishPending = true;
+		post(mDispatchTransitionFinished);
+	}
+	
+	/**
+	 * State of the control saved when the activity is destroyed. The panels are restored directly 
+	 * in their final position, without animation.
+	 */
+	static class SavedState extends BaseSavedState {
+		
+		// State shown and number of panels that could be visible when it was saved
+		int visibilityState;
+		int maxVisiblePanes;
+		
+		// Last state requested by the user, from which the state of the next size class is derived
+		int requestedState;
+		int requestedMaxVisiblePanes;
+		
+		SavedState(Parcelable superState) {
+			super(superState);
+		}
+		
+		private SavedState(Parcel in) {
+			super(in);
+			
+			visibilityState = in.readInt();
+			maxVisiblePanes = in.readInt();
+			requestedState = in.readInt();
+			requestedMaxVisiblePanes = in.readInt();
+		}
+		
+		@Override
+		public void writeToParcel(Parcel out, int flags) {
+			super.writeToParcel(out, flags);
+			
+			out.writeInt(visibilityState);
+			out.writeInt(maxVisiblePanes);
+			out.writeInt(requestedState);
+			out.writeInt(requestedMaxVisiblePanes);
+		}
+		
+		public static final Parcelable.Creator<SavedState> CREATOR = new Parcelable.Creator<SavedState>() {
+			
+			@Override
+			public SavedState createFromParcel(Parcel in) {
+				return new SavedState(in);
+			}
+			
+			@Override
+			public SavedState[] newArray(int size) {
+				return new SavedState[size];
+			}
+		};
+	}
+	
+	@Override
+	protected void onDetachedFromWindow() {
+		super.onDetachedFromWindow();
+		
+		if (mSnapshotPool != null) {
+			mSnapshotPool.clear();
+		}
+		
+		if (mVelocityTracker != null) {
+			mVelocityTracker.recycle();
+			mVelocityTracker = null;
+		}
+	}
+	
+	@Override
+	public boolean shouldDelayChildPressedState() {
+		return false;
+	}
+	
+	@Override
+	protected boolean drawChild(Canvas canvas, View child, long drawingTime) {
+		
+		int pane = child == mLeftView ? 0 : child == mMiddleView ? 1 : 2;
+		
+		if (!mPaneShown[pane]) {
+			return false;
+		}
+		
+		if (!mClipPanes) {
+			return super.drawChild(canvas, child, drawingTime);
+		}
+		
+		int saveCount = PaneSupport.clip(canvas, child, mPaneClipWidth[pane]);
+		
+		boolean result = false;
+		
+		if (mSnapshots[pane] != null) {
+			// Snapshot transition: the rendered panel is drawn instead of the panel
+			canvas.drawBitmap(mSnapshots[pane], child.getLeft() + child.getTranslationX(), child.getTop(), null);
+		} else {
+			result = super.drawChild(canvas, child, drawingTime);
 		}
+		
+		canvas.restoreToCount(saveCount);
+		
+		return result;
 	}
 	
 	public VisibilityState getVisibityState() {
 		return mVisibilityState;
 	}
-
-	@SuppressWarnings("unused")
-	private void setLeftWidth(int value) {
-		mLeftView.getLayoutParams().width = value;
-		requestLayout();
+	
+	/**
+	 * Sets the strategy used to move the panels during the visibility state transitions
+	 * 
+	 * @param transitionMode   One of the values of {@link TransitionMode}
+	 */
+	public void setTransitionMode(TransitionMode transitionMode) {
+		mTransitionMode = transitionMode;
 	}
 	
-	@SuppressWarnings("unused")
-	private void setMiddleWidth(int value) {
-		mMiddleView.getLayoutParams().width = value;
-		requestLayout();
+	public TransitionMode getTransitionMode() {
+		return mTransitionMode;
 	}
 	
-	@SuppressWarnings("unused")
-	private void setRightWidth(int value) {
-		mRightView.getLayoutParams().width = value;
-		requestLayout();
+	/**
+	 * Sets the type of layer used by the panels while they are moving. The new policy is applied from 
+	 * the next visibility state transition.
+	 * 
+	 * @param layerPolicy   One of the values of {@link LayerPolicy}
+	 */
+	public void setLayerPolicy(LayerPolicy layerPolicy) {
+		mLayerPolicy = layerPolicy;
 	}
-
+	
+	public LayerPolicy getLayerPolicy() {
+		return mLayerPolicy;
+	}
+	
 	/**
-	 * Moves in the X axis the views received as parameter.
-	 *   
-	 * @param deltaX   Number of pixels that are shifted in the x-axis views
-	 * @param views    Views on which it will move
+	 * Sets the breakpoints that decide, from the width of the control, how many panels can be visible at 
+	 * the same time and the width of each one. The panels are placed again, without animation, in the next 
+	 * layout pass.
+	 * 
+	 * @param policy   Breakpoints of the control, {@link BreakpointPolicy#DEFAULT} by default
 	 */
-	private void translateView(int deltaX, View... views) {
+	public void setBreakpointPolicy(BreakpointPolicy policy) {
 		
-		for (final View view : views) {
-			
-			view.setLayerType(View.LAYER_TYPE_NONE, null);
-
-			view.animate().translationXBy(deltaX).setDuration(ANIMATION_DURATION)
-					.setListener(new AnimatorListenerAdapter() {
-						@Override
-						public void onAnimationEnd(Animator animation) {
-							view.setLayerType(View.LAYER_TYPE_NONE, null);
-						}
-					});
+		if (policy == mBreakpointPolicy) {
+			return;
+		}
+		
+		mBreakpointPolicy = policy;
+		
+		if (mGeometry != null) {
+			abortTransition();
+			mGeometry = null;
 		}
+		
+		requestLayout();
 	}
-
+	
+	public BreakpointPolicy getBreakpointPolicy() {
+		return mBreakpointPolicy;
+	}
+	
 	/**
-	 * Updates the properties of length and weight on the layout of the view passed as parameter 
-	 * 
-	 * @param view    Vista on which perform the update of the properties
-	 * @param width   New width
+	 * Returns the number of panels that can be visible at the same time with the current width of the control
+	 */
+	public int getMaxVisiblePanes() {
+		return mSizeClass.getMaxVisiblePanes();
+	}
+	
+	@Override
+	public void requestLayout() {
+		mRequestLayoutCount++;
+		super.requestLayout();
+	}
+	
+	/**
+	 * Returns a snapshot of the layout and transition counters of the control since it was created
 	 */
-	private void resetWidget(View view, int width) {
+	public LayoutStats getStats() {
+		
+		LayoutStats stats = new LayoutStats();
+		
+		stats.mRequestLayoutCount = mRequestLayoutCount;
+		stats.mMeasureCount = mMeasureCount;
+		stats.mLayoutCount = mLayoutCount;
+		stats.mTransitionsStarted = mTransitionsStarted;
+		stats.mTransitionsCompleted = mTransitionsCompleted;
+		stats.mTransitionsDropped = mTransitionsDropped;
+		stats.mTotalTransitionTimeNanos = mTotalTransitionTimeNanos;
 		
-		LinearLayout.LayoutParams p = (LinearLayout.LayoutParams) view.getLayoutParams();
-		p.width = width;
-		p.weight = 0;
+		return stats;
 	}
 	
+	/**
+	 * Writes the state and the counters of the control, e.g. from {@link android.app.Activity#dump}
+	 * 
+	 * @param writer   Destination of the text
+	 */
+	public void dump(PrintWriter writer) {
+		
+		writer.println("ThreePaneLayout:");
+		writer.println("  visibilityState=" + mVisibilityState + " transitionMode=" + mTransitionMode 
+				+ " layerPolicy=" + mLayerPolicy);
+		writer.println("  sizeClass=" + mSizeClass + " width=" + getWidth());
+		writer.println("  runningAnimators=" + mRunningAnimators + " dragging=" + mDragging);
+		writer.println("  requestLayouts=" + mRequestLayoutCount + " measures=" + mMeasureCount 
+				+ " layouts=" + mLayoutCount);
+		writer.println("  transitionsStarted=" + mTransitionsStarted + " completed=" + mTransitionsCompleted 
+				+ " dropped=" + mTransitionsDropped + " totalTransitionMs=" + mTotalTransitionTimeNanos / 1000000f);
+	}
+
+	/**
+	 * Places the panels one after another with the widths set for the current frame of a relayout 
+	 * transition, requesting a single layout pass for the whole frame
+	 */
+	private void layoutPanesSideBySide() {
+		
+		int left = 0;
+		
+		for (int i = 0; i < mPanes.length; i++) {
+			mPaneLayoutLeft[i] = left;
+			left += mPaneLayoutWidth[i];
+		}
+		
+		requestLayout();
+	}
+
 	/**
 	 * Adds the component passed as a parameter to the list of control observers. The observers are notified
 	 * every time the control change the panels distribution. Observers also receive a notification just before 
@@ -507,11 +2028,6 @@ public class ThreePaneLayout extends LinearLayout {
 	 *                   to recieve notifications when the visibility control state change
 	 */
 	public void addStateObserver(OnStateChangeListener observer) {
-		
-		if ( mStateListeners == null ) {
-			mStateListeners = new ArrayList<OnStateChangeListener>();
-		}
-		
 		mStateListeners.add(observer);
 	}
 	
@@ -523,59 +2039,46 @@ public class ThreePaneLayout extends LinearLayout {
 	 *                   to recieve notifications when the visibility control state change
 	 */
 	public void deleteStatetObserver(OnStateChangeListener observer) {
-		
-		if ( mStateListeners == null ) return;
-		
 		mStateListeners.remove(observer);
 	}
 
 
 	/**
-	 * Method invoked by the host activity when the orientation of the device has changed. Based on the 
-	 * new orientation the control redistributes panels to match the new orientation and improve usability
+	 * Sets the component that receives the frame timing measurements of every visibility state transition.
+	 * The measurements are only available on devices with API level 16 or higher.
+	 * 
+	 * @param listener   component that implements the {@link OnTransitionMetricsListener} interface, 
+	 *                   or null to stop measuring the transitions
 	 */
-	public void deviceOrientationHasChange() 
-	{
-		int newScreenOrientation = getResources().getConfiguration().orientation;
-
-		VisibilityState currentVisibilityState = getVisibityState();
-		VisibilityState newVisibilityState = null;
-
-		if (newScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
-			// When orientation chamge to landscape the only possible states in the previous orientation 
-			// (portrait) can only be those where not coexist multiple views (eg LEFT_VISIBLE, 
-			// MIDDLE_VISIBLE, RIGHT_VISIBLE)
-
-			if (currentVisibilityState == VisibilityState.LEFT_VISIBLE) {
-				newVisibilityState = VisibilityState.LEFT_AND_MIDDLE_VISIBLE;
-			} else if (currentVisibilityState == VisibilityState.MIDDLE_VISIBLE) {
-				newVisibilityState = VisibilityState.MIDDLE_VISIBLE;
-			} else if (currentVisibilityState == VisibilityState.RIGHT_VISIBLE) {
-				newVisibilityState = VisibilityState.RIGHT_VISIBLE;
-			}
-
-		} else { // Configuration.ORIENTATION_PORTRAIT
-
-			if (currentVisibilityState == VisibilityState.LEFT_VISIBLE) {
-				newVisibilityState = VisibilityState.LEFT_VISIBLE;
-			} else if ( currentVisibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE || 
-					    currentVisibilityState == VisibilityState.MIDDLE_VISIBLE ) {
-				newVisibilityState = VisibilityState.MIDDLE_VISIBLE;
-			} else if (currentVisibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-				newVisibilityState = VisibilityState.RIGHT_VISIBLE;
-			} else if (currentVisibilityState == VisibilityState.RIGHT_VISIBLE) {
-				newVisibilityState = VisibilityState.RIGHT_VISIBLE;
-			}
-		}
-
-		mScreenOrientation = newScreenOrientation;
-		
-		mMinPaneWidth = -1;
-		configureWidth(newVisibilityState);
-		
-		mVisibilityState = newVisibilityState;
+	public void setOnTransitionMetricsListener(OnTransitionMetricsListener listener) {
+		mTransitionMetricsListener = listener;
 	}
-		
+	
+	/**
+	 * Sets the tracer that records the state changes of the control, the transitions and the notifications 
+	 * to the observers. The same tracer can be shared with the host activity to record its own sections.
+	 * 
+	 * @param tracer   Tracer that records the sections, or null to disable tracing
+	 */
+	public void setTransitionTracer(TransitionTracer tracer) {
+		mTracer = tracer;
+	}
+	
+	public TransitionTracer getTransitionTracer() {
+		return mTracer;
+	}
+	
+	/**
+	 * Method invoked by the host activity when the orientation of the device has changed. 
+	 * 
+	 * @deprecated The control redistributes the panels by itself when its size changes, in the same layout 
+	 *             pass. This method only requests a layout.
+	 */
+	@Deprecated
+	public void deviceOrientationHasChange() {
+		requestLayout();
+	}
+	
 	public View getLeftView() {
 		return mLeftView;
 	}
@@ -0,0 +1,102 @@
+package com.panels.controls;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.view.Choreographer;
+
+import com.panels.controls.ThreePaneLayout.VisibilityState;
+
+/**
+ * <p>Records the frame times of a visibility state transition through {@link Choreographer} frame callbacks 
+ * and accumulates them in a {@link TransitionMetrics} instance.</p>
+ * 
+ * <p>Nothing is allocated while recording, so the measurement does not disturb the frames it measures.</p>
+ * 
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+class TransitionFrameRecorder implements Choreographer.FrameCallback {
+	
+	/**
+	 * Time available to draw a frame on a 60 Hz display
+	 */
+	private static final long FRAME_BUDGET_NANOS = 1000000000L / 60;
+	
+	// Frame intervals are multiples of the vsync period, so an interval longer than one period and a 
+	// half means that at least one frame was dropped
+	private static final long JANK_THRESHOLD_NANOS = FRAME_BUDGET_NANOS * 3 / 2;
+	
+	private final Choreographer mChoreographer = Choreographer.getInstance();
+	
+	private final TransitionMetrics mMetrics = new TransitionMetrics();
+	
+	private boolean mRecording;
+	
+	private long mStartTimeNanos;
+	private long mLastFrameTimeNanos;
+	
+	/**
+	 * Begins the recording of the frames of a transition
+	 * 
+	 * @param fromState   Initial visibility state
+	 * @param toState     Final visibility state
+	 */
+	void start(VisibilityState fromState, VisibilityState toState) {
+		
+		if (mRecording) {
+			mChoreographer.removeFrameCallback(this);
+		}
+		
+		mMetrics.reset(fromState, toState);
+		
+		mStartTimeNanos = System.nanoTime();
+		mLastFrameTimeNanos = 0;
+		mRecording = true;
+		
+		mChoreographer.postFrameCallback(this);
+	}
+	
+	/**
+	 * Ends the recording and returns the metrics of the transition
+	 */
+	TransitionMetrics stop() {
+		
+		mChoreographer.removeFrameCallback(this);
+		mRecording = false;
+		
+		mMetrics.mTotalDurationNanos = System.nanoTime() - mStartTimeNanos;
+		
+		return mMetrics;
+	}
+	
+	boolean isRecording() {
+		return mRecording;
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		
+		if (!mRecording) {
+			return;
+		}
+		
+		if (mLastFrameTimeNanos != 0) {
+			
+			long frameTime = frameTimeNanos - mLastFrameTimeNanos;
+			
+			if (frameTime > mMetrics.mMaxFrameTimeNanos) {
+				mMetrics.mMaxFrameTimeNanos = frameTime;
+			}
+			
+			if (frameTime > JANK_THRESHOLD_NANOS) {
+				mMetrics.mFramesOverBudget++;
+			}
+		}
+		
+		mMetrics.mFrameCount++;
+		mLastFrameTimeNanos = frameTimeNanos;
+		
+		mChoreographer.postFrameCallback(this);
+	}
+}
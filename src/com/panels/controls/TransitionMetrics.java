@@ -0,0 +1,126 @@
+package com.panels.controls;
+
+import com.panels.controls.ThreePaneLayout.VisibilityState;
+
+/**
+ * <p>Frame timing measurements and measure and layout passes of a visibility state transition of a 
+ * {@link ThreePaneLayout}.</p>
+ * 
+ * <p>The control reuses the same instance for every transition, so the values are only valid during the 
+ * call to {@link ThreePaneLayout.OnTransitionMetricsListener#onTransitionMetrics(TransitionMetrics)}.
+ * Clients that need to keep them must copy the values.</p>
+ * 
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public final class TransitionMetrics {
+	
+	VisibilityState mFromState;
+	VisibilityState mToState;
+	
+	int mFrameCount;
+	int mFramesOverBudget;
+	
+	long mMaxFrameTimeNanos;
+	long mTotalDurationNanos;
+	
+	int mMeasureCount;
+	int mLayoutCount;
+	int mPaneMeasureCount;
+	int mPaneLayoutCount;
+	
+	TransitionMetrics() {/**/}
+	
+	/**
+	 * Clears the values of the previous transition
+	 */
+	void reset(VisibilityState fromState, VisibilityState toState) {
+		
+		mFromState = fromState;
+		mToState = toState;
+		
+		mFrameCount = 0;
+		mFramesOverBudget = 0;
+		mMaxFrameTimeNanos = 0;
+		mTotalDurationNanos = 0;
+		
+		mMeasureCount = 0;
+		mLayoutCount = 0;
+		mPaneMeasureCount = 0;
+		mPaneLayoutCount = 0;
+	}
+
+	public VisibilityState getFromState() {
+		return mFromState;
+	}
+
+	public VisibilityState getToState() {
+		return mToState;
+	}
+
+	/**
+	 * Number of frames drawn during the transition
+	 */
+	public int getFrameCount() {
+		return mFrameCount;
+	}
+
+	/**
+	 * Number of frames whose time exceeded the frame budget of the display
+	 */
+	public int getFramesOverBudget() {
+		return mFramesOverBudget;
+	}
+
+	/**
+	 * Longest time between two consecutive frames of the transition, in nanoseconds
+	 */
+	public long getMaxFrameTimeNanos() {
+		return mMaxFrameTimeNanos;
+	}
+
+	/**
+	 * Time elapsed since the transition started until its last animator finished or, if the panels had 
+	 * to be laid out again at the end, until that layout pass, in nanoseconds
+	 */
+	public long getTotalDurationNanos() {
+		return mTotalDurationNanos;
+	}
+	
+	/**
+	 * Number of measure passes of the control during the transition, including the final pass
+	 */
+	public int getMeasureCount() {
+		return mMeasureCount;
+	}
+
+	/**
+	 * Number of layout passes of the control during the transition, including the final pass
+	 */
+	public int getLayoutCount() {
+		return mLayoutCount;
+	}
+
+	/**
+	 * Number of times that a panel has been measured during the transition
+	 */
+	public int getPaneMeasureCount() {
+		return mPaneMeasureCount;
+	}
+
+	/**
+	 * Number of times that a panel has been laid out during the transition
+	 */
+	public int getPaneLayoutCount() {
+		return mPaneLayoutCount;
+	}
+	
+	@Override
+	public String toString() {
+		return "TransitionMetrics[" + mFromState + " -> " + mToState + ", frames=" + mFrameCount 
+				+ ", overBudget=" + mFramesOverBudget + ", maxFrameMs=" + mMaxFrameTimeNanos / 1000000f 
+				+ ", durationMs=" + mTotalDurationNanos / 1000000f + ", measures=" + mMeasureCount 
+				+ ", layouts=" + mLayoutCount + ", paneMeasures=" + mPaneMeasureCount 
+				+ ", paneLayouts=" + mPaneLayoutCount + "]";
+	}
+}
@@ -0,0 +1,253 @@
+package com.panels.controls;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.Trace;
+
+/**
+ * <p>Records the sections of code executed during the visibility state transitions of a
+ * {@link ThreePaneLayout}. Each section is emitted as an {@link Trace} section, so it shows up in systrace
+ * on devices with API level 18 or higher, and is also stored in an in-memory ring buffer.</p>
+ *
+ * <p>The ring buffer is allocated when the tracer is created and keeps the last events recorded, so
+ * recording does not allocate. Its content can be written as Chrome trace-event JSON with
+ * {@link #exportChromeTrace(File)} and opened in <i>chrome://tracing</i> to inspect slow transitions of
+ * builds that cannot be traced with systrace.</p>
+ *
+ * <p>The sections must be nested and begun and ended on the same thread.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public final class TransitionTracer implements ObserverArray.SectionTracer {
+
+	/**
+	 * Number of events kept by default, each section records two
+	 */
+	public static final int DEFAULT_CAPACITY = 2048;
+
+	private static final boolean SYSTEM_TRACE_AVAILABLE =
+			Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+	// Phases of the events in the Chrome trace-event format
+	private static final char PHASE_BEGIN = 'B';
+	private static final char PHASE_END   = 'E';
+
+	// Events of the ring buffer. The name of the end events is the name of the section they close
+	private final String[] mNames;
+	private final char[] mPhases;
+	private final long[] mTimestampsNanos;
+	private final int[] mThreadIds;
+
+	// Names of the open sections, so the end events can be named
+	private final String[] mOpenSections = new String[64];
+	private int mOpenSectionCount;
+
+	// Position where the next event is stored and number of events stored
+	private int mNext;
+	private int mCount;
+
+	public TransitionTracer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity   Maximum number of events kept. When the buffer is full the oldest events are replaced
+	 */
+	public TransitionTracer(int capacity) {
+
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("The capacity of the tracer must be greater than zero");
+		}
+
+		mNames = new String[capacity];
+		mPhases = new char[capacity];
+		mTimestampsNanos = new long[capacity];
+		mThreadIds = new int[capacity];
+	}
+
+	/**
+	 * Begins a section. Every call must be followed by a call to {@link #endSection()}
+	 *
+	 * @param name   Name of the section, at most 127 characters
+	 */
+	@Override
+	public synchronized void beginSection(String name) {
+
+		if (SYSTEM_TRACE_AVAILABLE) {
+			Trace.beginSection(name);
+		}
+
+		if (mOpenSectionCount < mOpenSections.length) {
+			mOpenSections[mOpenSectionCount] = name;
+		}
+
+		mOpenSectionCount++;
+
+		record(name, PHASE_BEGIN);
+	}
+
+	/**
+	 * Ends the last section begun with {@link #beginSection(String)}
+	 */
+	@Override
+	public synchronized void endSection() {
+
+		if (mOpenSectionCount == 0) {
+			return;
+		}
+
+		if (SYSTEM_TRACE_AVAILABLE) {
+			Trace.endSection();
+		}
+
+		mOpenSectionCount--;
+
+		String name = null;
+
+		if (mOpenSectionCount < mOpenSections.length) {
+			name = mOpenSections[mOpenSectionCount];
+			mOpenSections[mOpenSectionCount] = null;
+		}
+
+		record(name, PHASE_END);
+	}
+
+	private void record(String name, char phase) {
+
+		mNames[mNext] = name;
+		mPhases[mNext] = phase;
+		mTimestampsNanos[mNext] = System.nanoTime();
+		mThreadIds[mNext] = Process.myTid();
+
+		mNext = (mNext + 1) % mNames.length;
+
+		if (mCount < mNames.length) {
+			mCount++;
+		}
+	}
+
+	/**
+	 * Discards the recorded events. The open sections are kept
+	 */
+	public synchronized void clear() {
+
+		for (int i = 0; i < mNames.length; i++) {
+			mNames[i] = null;
+		}
+
+		mNext = 0;
+		mCount = 0;
+	}
+
+	/**
+	 * Returns the number of events in the buffer
+	 */
+	public synchronized int getEventCount() {
+		return mCount;
+	}
+
+	/**
+	 * Writes the recorded events to a file as Chrome trace-event JSON, from the oldest to the newest
+	 *
+	 * @param file   Destination file. It is replaced if it already exists
+	 * @throws IOException   If the file cannot be written
+	 */
+	public void exportChromeTrace(File file) throws IOException {
+
+		Writer writer = new BufferedWriter(new FileWriter(file));
+
+		try {
+			writeChromeTrace(writer);
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Writes the recorded events as Chrome trace-event JSON, from the oldest to the newest. The events are
+	 * copied before writing them, so the sections recorded meanwhile by other threads do not wait for the
+	 * writer.
+	 *
+	 * @param writer   Destination of the JSON. It is not closed
+	 * @throws IOException   If the writer fails
+	 */
+	public void writeChromeTrace(Writer writer) throws IOException {
+
+		String[] names;
+		char[] phases;
+		long[] timestampsNanos;
+		int[] threadIds;
+
+		synchronized (this) {
+
+			int first = (mNext - mCount + mNames.length) % mNames.length;
+
+			names = new String[mCount];
+			phases = new char[mCount];
+			timestampsNanos = new long[mCount];
+			threadIds = new int[mCount];
+
+			for (int i = 0; i < mCount; i++) {
+
+				int index = (first + i) % mNames.length;
+
+				names[i] = mNames[index];
+				phases[i] = mPhases[index];
+				timestampsNanos[i] = mTimestampsNanos[index];
+				threadIds[i] = mThreadIds[index];
+			}
+		}
+
+		int pid = Process.myPid();
+
+		writer.write("{\"traceEvents\":[");
+
+		for (int i = 0; i < names.length; i++) {
+
+			if (i > 0) {
+				writer.write(',');
+			}
+
+			writer.write("\n{\"name\":\"");
+			writeEscaped(writer, names[i] != null ? names[i] : "");
+			writer.write("\",\"ph\":\"");
+			writer.write(phases[i]);
+			writer.write("\",\"ts\":");
+			// The timestamps of the format are in microseconds
+			writer.write(Long.toString(timestampsNanos[i] / 1000));
+			writer.write(",\"pid\":");
+			writer.write(Integer.toString(pid));
+			writer.write(",\"tid\":");
+			writer.write(Integer.toString(threadIds[i]));
+			writer.write('}');
+		}
+
+		writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+		writer.flush();
+	}
+
+	private static void writeEscaped(Writer writer, String value) throws IOException {
+
+		for (int i = 0; i < value.length(); i++) {
+
+			char c = value.charAt(i);
+
+			if (c == '"' || c == '\\') {
+				writer.write('\\');
+				writer.write(c);
+			} else if (c < 0x20) {
+				writer.write(String.format("\\u%04x", (int) c));
+			} else {
+				writer.write(c);
+			}
+		}
+	}
+
+}
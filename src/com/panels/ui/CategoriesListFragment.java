@@ -2,9 +2,7 @@ package com.panels.ui;
 
 import android.app.Activity;
 import android.app.Fragment;
-import android.content.res.Configuration;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
@@ -22,8 +20,6 @@ public class CategoriesListFragment extends Fragment implements
 
 	private ImageView mArrowSizeControl;
 
-	private Handler mHandler = new Handler();
-
 	public interface OnCategoriesListSizeControlListener {
 		
 		/**
@@ -56,11 +52,9 @@ public class CategoriesListFragment extends Fragment implements
 		mArrowSizeControl = (ImageView) view.findViewById(R.id.arrowSizeControl);
 		mArrowSizeControl.setOnClickListener(this);
 		
-		int screenOrientation = getResources().getConfiguration().orientation;
-		
-		if (screenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
+		if (getMaxVisiblePanes() > 1) {
 			mArrowSizeControl.setImageResource(R.drawable.ic_right);
-		} else { // Configuration.ORIENTATION_PORTRAIT
+		} else { // Only one panel visible
 			mArrowSizeControl.setImageResource(R.drawable.ic_left);
 		}
 		
@@ -80,34 +74,37 @@ public class CategoriesListFragment extends Fragment implements
 	public void onBeginTransitionState(VisibilityState oldState, VisibilityState newState) { /**/ }
 
 	@Override
-	public void onNewStateVisible(final VisibilityState newState) {
-		
-		mHandler.postDelayed(new Runnable() {
-
-			@Override
-			public void run() {
-
-				int screenOrientation = getResources().getConfiguration().orientation;
-				
-				if (screenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
-					
-					if (newState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
-						mArrowSizeControl.setImageResource(R.drawable.ic_right);
-					} else if (newState == VisibilityState.LEFT_VISIBLE) {
-						mArrowSizeControl.setImageResource(R.drawable.ic_left);
-					}
+	public void onNewStateVisible(VisibilityState newState) { /**/ }
+
+	@Override
+	public void onTransitionFinished(VisibilityState newState) {
 		
-				} else { // Configuration.ORIENTATION_PORTRAIT
-					
-					if (newState == VisibilityState.LEFT_VISIBLE) {
-						mArrowSizeControl.setImageResource(R.drawable.ic_left);
-					} else if (newState == VisibilityState.LEFT_VISIBLE) {
-						mArrowSizeControl.setImageResource(R.drawable.ic_right);
-					}
-				}
-				
+		if (getMaxVisiblePanes() > 1) {
+			
+			if (newState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE || newState == VisibilityState.ALL_VISIBLE) {
+				mArrowSizeControl.setImageResource(R.drawable.ic_right);
+			} else if (newState == VisibilityState.LEFT_VISIBLE) {
+				mArrowSizeControl.setImageResource(R.drawable.ic_left);
 			}
 
-		}, ThreePaneLayout.ANIMATION_DURATION);
+		} else { // Only one panel visible
+			
+			if (newState == VisibilityState.LEFT_VISIBLE) {
+				mArrowSizeControl.setImageResource(R.drawable.ic_left);
+			} else if (newState == VisibilityState.LEFT_VISIBLE) {
+				mArrowSizeControl.setImageResource(R.drawable.ic_right);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of panels that the multipanel control can show at the same time with its current 
+	 * width, which does not depend on the orientation of the device (e.g. a tablet in portrait)
+	 */
+	private int getMaxVisiblePanes() {
+		
+		ThreePaneLayout control = (ThreePaneLayout) getActivity().findViewById(R.id.multiPaneControl);
+		
+		return control.getMaxVisiblePanes();
 	}
 }
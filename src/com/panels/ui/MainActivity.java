@@ -1,20 +1,37 @@
 package com.panels.ui;
 
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.io.PrintWriter;
+
 import android.app.Activity;
 import android.app.FragmentTransaction;
-import android.content.res.Configuration;
+import android.content.Context;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.util.Log;
 
 import com.panels.R;
 import com.panels.controls.ThreePaneLayout;
+import com.panels.controls.ThreePaneLayout.Direction;
 import com.panels.controls.ThreePaneLayout.OnStateChangeListener;
 import com.panels.controls.ThreePaneLayout.VisibilityState;
+import com.panels.controls.TransitionTracer;
 
 public class MainActivity extends Activity implements
 	CategoriesListFragment.OnCategoriesListSizeControlListener,
 	TasksListFragment.OnTasksListSizeControlListener,
 	TaskDetailFragment.OnTaskDetailSizeControlListener, OnStateChangeListener {
 
+	private static final String TAG = "MainActivity";
+	
+	// When true, the transitions of the multipanel control are traced and the trace is written to 
+	// TRACE_FILE_NAME, in the files directory of the application, every time the activity is stopped
+	private static final boolean TRACE_TRANSITIONS = false;
+	
+	private static final String TRACE_FILE_NAME = "transitions.json";
+
 	// Multipanel control that will contain the fragments associated with the 
 	// category list, task list and task detail.
 	private ThreePaneLayout mMultiPaneControl;
@@ -23,143 +40,275 @@ public class MainActivity extends Activity implements
 	private CategoriesListFragment mCategoriesListFragment;
 	private TasksListFragment mTasksListFragment;
 	private TaskDetailFragment mTaskDetailFragment;
-
-	private int mScreenOrientation;
+	
+	// Loads the content of the panels that are going to be shown before they reach their position
+	private final PanePrefetcher mPrefetcher = new PanePrefetcher();
+	
+	// Shared with the multipanel control, null while tracing is disabled
+	private TransitionTracer mTracer;
 	
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.activity_main);
 		
-		// Get the initial orientation of the device
-		mScreenOrientation = getResources().getConfiguration().orientation;
-
 		mMultiPaneControl = (ThreePaneLayout) findViewById(R.id.multiPaneControl);
 		
-		mCategoriesListFragment = CategoriesListFragment.newInstance();
-		mTasksListFragment      = TasksListFragment.newInstance();
-		mTaskDetailFragment     = TaskDetailFragment.newInstance();
-		
-		// Add the state change observers of the ThreePaneLayout control.
-		// The client fragments use the events of the OnstateChangeListener interface to 
-		// update the arrows orientation that user can use to redimension the panels
-		mMultiPaneControl.addStateObserver(mCategoriesListFragment);
-		mMultiPaneControl.addStateObserver(mTasksListFragment);
-		mMultiPaneControl.addStateObserver(mTaskDetailFragment);
+		if (TRACE_TRANSITIONS) {
+			mTracer = new TransitionTracer();
+			mMultiPaneControl.setTransitionTracer(mTracer);
+		}
 		
 		mMultiPaneControl.addStateObserver(this);
 		
-		FragmentTransaction transaction = getFragmentManager().beginTransaction();
-		transaction.add(R.id.categoriesList, mCategoriesListFragment, "tag");
-		transaction.add(R.id.tasksList, mTasksListFragment);
-		transaction.add(R.id.taskDetail, mTaskDetailFragment);
-		transaction.commit();
+		mPrefetcher.setLoader(R.id.taskDetail, TaskDetailFragment.newContentLoader(getApplicationContext().getResources()));
+		
+		if (savedInstanceState != null) {
+			// The fragment manager has already recreated the fragments that were attached
+			restorePaneFragments();
+			return;
+		}
+		
+		// The fragment of each panel is created and attached the first time the panel is going to be 
+		// visible, so only the panels visible in the initial state are created now
+		attachPaneFragments(mMultiPaneControl.getVisibityState());
+		deliverPanes(mMultiPaneControl.getVisibityState());
 	}
 	
 	@Override
-	public void onConfigurationChanged(Configuration newConfig) {
-	    super.onConfigurationChanged(newConfig);
-	    
-		mScreenOrientation = getResources().getConfiguration().orientation;
+	protected void onStop() {
+		super.onStop();
 		
-		// When device orientationcchange notify the ThreePaneLyout control associated with the activity 
-		// to update the distribution of its panels in order to improve usability
-	    mMultiPaneControl.deviceOrientationHasChange();
+		if (mTracer != null) {
+			exportTrace();
+		}
+	}
+	
+	/**
+	 * Writes the trace of the last transitions as Chrome trace-event JSON. It can be retrieved with 
+	 * "adb shell run-as com.panels cat files/transitions.json" and opened in chrome://tracing. The file is 
+	 * written on a background thread, so stopping the activity does not wait for the disk
+	 */
+	private void exportTrace() {
+		
+		final TransitionTracer tracer = mTracer;
+		final Context context = getApplicationContext();
+		
+		AsyncTask.SERIAL_EXECUTOR.execute(new Runnable() {
+			@Override
+			public void run() {
+				
+				File file = new File(context.getFilesDir(), TRACE_FILE_NAME);
+				
+				try {
+					tracer.exportChromeTrace(file);
+				} catch (IOException e) {
+					Log.e(TAG, "Error writing the trace to " + file, e);
+				}
+			}
+		});
 	}
 	
 	@Override
-	public void onCategoriesListSizeControlSelected() {
+	protected void onDestroy() {
+		super.onDestroy();
+		
+		mPrefetcher.shutdown();
+	}
 	
-		if (mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
-			
-			VisibilityState visibilityState = mMultiPaneControl.getVisibityState();
-			
-			if (visibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE ) {
-				mMultiPaneControl.setVisibilityState(VisibilityState.LEFT_VISIBLE);
-			} else if ( visibilityState == VisibilityState.LEFT_VISIBLE) {
-				mMultiPaneControl.setVisibilityState(VisibilityState.LEFT_AND_MIDDLE_VISIBLE);
-			}
-			
-		} else { // Configuration.ORIENTATION_PORTRAIT
+	@Override
+	public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+		super.dump(prefix, fd, writer, args);
 		
-			// The only possible state if this event is received while the device in 
-			// portrait orientation is MIDDLE_VISIBLE
-			mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_VISIBLE);
-		}
+		// Available through "adb shell dumpsys activity com.panels"
+		mMultiPaneControl.dump(writer);
 	}
 	
 	@Override
-	public void onTasksListSizeControlSelected(boolean leftControl) {
+	protected void onRestoreInstanceState(Bundle savedInstanceState) {
+		super.onRestoreInstanceState(savedInstanceState);
 		
-		VisibilityState visibilityState = mMultiPaneControl.getVisibityState();
+		// The multipanel control has restored its state, which can show panels without fragment
+		attachPaneFragments(mMultiPaneControl.getVisibityState());
+		getFragmentManager().executePendingTransactions();
 		
-		if (leftControl) {
-			
-			if ( mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE ) {
-				
-				if (visibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE ) {
-					mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_VISIBLE);
-				} else if (visibilityState == VisibilityState.MIDDLE_VISIBLE ) {
-					mMultiPaneControl.setVisibilityState(VisibilityState.LEFT_AND_MIDDLE_VISIBLE);
-				} else if (visibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE ) {
-					mMultiPaneControl.setVisibilityState(VisibilityState.LEFT_AND_MIDDLE_VISIBLE);
-				}	
-				
-			} else { // Configuration.ORIENTATION_PORTRAIT
-				
-				// The only possible state if this event is received while the device in 
-				// portrait orientation is LEFT_VISIBLE
-				mMultiPaneControl.setVisibilityState(VisibilityState.LEFT_VISIBLE);
+		deliverPanes(mMultiPaneControl.getVisibityState());
+	}
+	
+	/**
+	 * Registers as observers of the multipanel control the fragments recreated by the fragment manager
+	 */
+	private void restorePaneFragments() {
+		
+		mCategoriesListFragment = (CategoriesListFragment) getFragmentManager().findFragmentById(R.id.categoriesList);
+		mTasksListFragment = (TasksListFragment) getFragmentManager().findFragmentById(R.id.tasksList);
+		mTaskDetailFragment = (TaskDetailFragment) getFragmentManager().findFragmentById(R.id.taskDetail);
+		
+		if (mCategoriesListFragment != null) mMultiPaneControl.addStateObserver(mCategoriesListFragment);
+		if (mTasksListFragment != null) mMultiPaneControl.addStateObserver(mTasksListFragment);
+		if (mTaskDetailFragment != null) mMultiPaneControl.addStateObserver(mTaskDetailFragment);
+	}
+	
+	/**
+	 * Creates and attaches the fragments of the panels visible in the state received as parameter 
+	 * which have not been created yet. Each new fragment is registered as observer of the multipanel 
+	 * control.
+	 * 
+	 * @param visibilityState   State of the multipanel control
+	 */
+	private void attachPaneFragments(VisibilityState visibilityState) {
+		
+		if (mTracer != null) {
+			mTracer.beginSection("MainActivity.attachPaneFragments");
+		}
+		
+		try {
+			addPaneFragments(visibilityState);
+		} finally {
+			if (mTracer != null) {
+				mTracer.endSection();
 			}
+		}
+	}
+	
+	private void addPaneFragments(VisibilityState visibilityState) {
+		
+		FragmentTransaction transaction = null;
+		
+		if (isLeftVisible(visibilityState) && mCategoriesListFragment == null) {
 			
-		} else {
+			mCategoriesListFragment = CategoriesListFragment.newInstance();
+			mMultiPaneControl.addStateObserver(mCategoriesListFragment);
 			
-			if (mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
-				
-				if (visibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
-					mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
-				} else if (visibilityState == VisibilityState.MIDDLE_VISIBLE) {
-					mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
-				} else if (visibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-					mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_VISIBLE);
-				}	
-				
-			} else { // Configuration.ORIENTATION_PORTRAIT
+			transaction = getFragmentManager().beginTransaction();
+			transaction.add(R.id.categoriesList, mCategoriesListFragment);
+		}
+		
+		if (isMiddleVisible(visibilityState) && mTasksListFragment == null) {
 			
-				// The only possible state if this event is received while the device in 
-				// portrait orientation is RIGHT_VISIBLE
-				mMultiPaneControl.setVisibilityState(VisibilityState.RIGHT_VISIBLE);
-			}
+			mTasksListFragment = TasksListFragment.newInstance();
+			mMultiPaneControl.addStateObserver(mTasksListFragment);
+			
+			if (transaction == null) transaction = getFragmentManager().beginTransaction();
+			transaction.add(R.id.tasksList, mTasksListFragment);
+		}
+		
+		if (isRightVisible(visibilityState) && mTaskDetailFragment == null) {
+			
+			mTaskDetailFragment = TaskDetailFragment.newInstance();
+			mMultiPaneControl.addStateObserver(mTaskDetailFragment);
+			
+			if (transaction == null) transaction = getFragmentManager().beginTransaction();
+			transaction.add(R.id.taskDetail, mTaskDetailFragment);
+		}
+		
+		if (transaction != null) {
+			transaction.commit();
 		}
 	}
 	
-	@Override
-	public void onDetailTaskSizeControlSelected() {
+	private static boolean isLeftVisible(VisibilityState visibilityState) {
+		return visibilityState == VisibilityState.LEFT_VISIBLE || 
+				visibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE || 
+				visibilityState == VisibilityState.ALL_VISIBLE;
+	}
+	
+	private static boolean isMiddleVisible(VisibilityState visibilityState) {
+		return visibilityState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE || 
+				visibilityState == VisibilityState.MIDDLE_VISIBLE || 
+				visibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE || 
+				visibilityState == VisibilityState.ALL_VISIBLE;
+	}
+	
+	private static boolean isRightVisible(VisibilityState visibilityState) {
+		return visibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE || 
+				visibilityState == VisibilityState.RIGHT_VISIBLE || 
+				visibilityState == VisibilityState.ALL_VISIBLE;
+	}
+	
+	/**
+	 * Starts loading in background the content of the panels visible in the state received as parameter. 
+	 * The fragments of the panels do not need to exist yet
+	 * 
+	 * @param visibilityState   State of the multipanel control
+	 */
+	private void prefetchPanes(VisibilityState visibilityState) {
 		
-		VisibilityState visibilityState = mMultiPaneControl.getVisibityState();
+		if (isRightVisible(visibilityState)) {
+			mPrefetcher.prefetch(R.id.taskDetail);
+		}
+	}
+	
+	/**
+	 * Hands the content loaded in advance to the fragments of the panels visible in the state received 
+	 * as parameter, as soon as it is ready
+	 * 
+	 * @param visibilityState   State of the multipanel control
+	 */
+	private void deliverPanes(VisibilityState visibilityState) {
 		
-		if (mScreenOrientation == Configuration.ORIENTATION_LANDSCAPE) {
-			
-			if ( visibilityState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-				mMultiPaneControl.setVisibilityState(VisibilityState.RIGHT_VISIBLE);
-			} else if ( visibilityState == VisibilityState.RIGHT_VISIBLE) {
-				mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
-			}	
-			
-		} else { // Configuration.ORIENTATION_PORTRAIT
+		if (isRightVisible(visibilityState) && mTaskDetailFragment != null) {
+			mPrefetcher.deliver(R.id.taskDetail, mTaskDetailFragment);
+		}
+	}
+	
+	@Override
+	public void onCategoriesListSizeControlSelected() {
+		mMultiPaneControl.navigate(Direction.LEFT_PANE);
+	}
+	
+	@Override
+	public void onTasksListSizeControlSelected(boolean leftControl) {
+		mMultiPaneControl.navigate(leftControl ? Direction.MIDDLE_PANE_TO_LEFT : Direction.MIDDLE_PANE_TO_RIGHT);
+	}
+	
+	@Override
+	public void onTasksListSizeControlPressed(boolean leftControl) {
+		
+		VisibilityState newState = mMultiPaneControl.getNavigationTarget(
+				leftControl ? Direction.MIDDLE_PANE_TO_LEFT : Direction.MIDDLE_PANE_TO_RIGHT);
 		
-			// The only possible state if this event is received while the device in 
-			// portrait orientation is MIDDLE_VISIBLE
-			mMultiPaneControl.setVisibilityState(VisibilityState.MIDDLE_VISIBLE); 
+		// The content of the panels starts loading before the finger is lifted
+		if (newState != null) {
+			prefetchPanes(newState);
 		}
 	}
 	
+	@Override
+	public void onDetailTaskSizeControlSelected() {
+		mMultiPaneControl.navigate(Direction.RIGHT_PANE);
+	}
+	
 
 	@Override
 	public void onBeginTransitionState(VisibilityState oldState,
 			VisibilityState newState) {
+		
+		// The content starts loading before the fragments are created, so both run at the same time
+		prefetchPanes(newState);
+		
+		// Create the panels that are going to be shown and build their views before 
+		// the first frame of the transition
+		attachPaneFragments(newState);
+		getFragmentManager().executePendingTransactions();
+	}
+
+	@Override
+	public void onNewStateVisible(VisibilityState newState) {
+		
+		// The content loaded in advance is shown as soon as it is ready. The notification is traced 
+		// by the multipanel control, like the ones of the fragments
+		deliverPanes(newState);
 	}
 
 	@Override
-	public void onNewStateVisible(VisibilityState newState) { /**/ }
+	public void onTransitionFinished(VisibilityState newState) {
+		
+		// The control can also change the state by itself when its width moves to another size class
+		// The new fragments are notified after this observer, so their views must already exist
+		attachPaneFragments(newState);
+		getFragmentManager().executePendingTransactions();
+		
+		deliverPanes(newState);
+	}
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package com.panels.ui;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+
+/**
+ * <p>Loads the content of the panels that are going to be shown on a background thread, so the content is
+ * ready by the time the panel reaches its final position.</p>
+ *
+ * <p>The content of each panel is read by a {@link ContentLoader} registered with the id of the panel, so
+ * the load does not depend on the fragment of the panel, which may not have been created yet. The load
+ * starts with {@link #prefetch(int)} as soon as it is known that the panel is going to be visible (e.g.
+ * when an arrow is touched or a transition begins). The content is handed to the panel on the main thread
+ * once {@link #deliver(int, PrefetchablePane)} has been called and the load has ended, whichever happens
+ * last.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class PanePrefetcher {
+
+	private static final String TAG = "PanePrefetcher";
+
+	/**
+	 * Reads the content of a panel. It must not keep a reference to the fragment or to the views of the
+	 * panel, it is used before they exist
+	 */
+	public interface ContentLoader {
+
+		/**
+		 * Loads the content of the panel. Invoked on a background thread
+		 *
+		 * @return   The loaded content
+		 */
+		Object loadContent();
+	}
+
+	/**
+	 * Interface to be implemented by the panels whose content can be loaded in advance
+	 */
+	public interface PrefetchablePane {
+
+		/**
+		 * Shows the content loaded by the {@link ContentLoader} of the panel. Invoked on the main thread
+		 *
+		 * @param content   The loaded content, null if the load has failed
+		 */
+		void onContentLoaded(Object content);
+	}
+
+	/**
+	 * Load of the content of a panel
+	 */
+	private final class Request implements Runnable {
+
+		final int paneId;
+		final ContentLoader loader;
+
+		// Only accessed from the main thread
+		Object content;
+		boolean loaded;
+		PrefetchablePane target;
+
+		Request(int paneId, ContentLoader loader) {
+			this.paneId = paneId;
+			this.loader = loader;
+		}
+
+		@Override
+		public void run() {
+
+			Object result = null;
+
+			try {
+				result = loader.loadContent();
+			} catch (RuntimeException e) {
+				Log.e(TAG, "Error loading the content of the panel " + paneId, e);
+			}
+
+			final Object loadedContent = result;
+
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					onLoaded(Request.this, loadedContent);
+				}
+			});
+		}
+	}
+
+	private final ExecutorService mExecutor = Executors.newSingleThreadExecutor();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	// Loaders of the panels, by panel id
+	private final SparseArray<ContentLoader> mLoaders = new SparseArray<ContentLoader>();
+
+	// Running or undelivered loads, by panel id
+	private final SparseArray<Request> mRequests = new SparseArray<Request>();
+
+	/**
+	 * Registers the loader of the content of a panel
+	 *
+	 * @param paneId   Identifier of the panel (e.g. the id of its container)
+	 * @param loader   Loader of the content of the panel
+	 */
+	public void setLoader(int paneId, ContentLoader loader) {
+		mLoaders.put(paneId, loader);
+	}
+
+	/**
+	 * Starts loading the content of a panel on the background thread. The request is ignored if the
+	 * panel has no loader or if there is already a load for the panel that has not been delivered.
+	 *
+	 * @param paneId   Identifier of the panel
+	 */
+	public void prefetch(int paneId) {
+
+		ContentLoader loader = mLoaders.get(paneId);
+
+		if (loader == null || mRequests.get(paneId) != null) {
+			return;
+		}
+
+		Request request = new Request(paneId, loader);
+		mRequests.put(paneId, request);
+
+		mExecutor.execute(request);
+	}
+
+	/**
+	 * Hands the content of a panel to the panel as soon as it is loaded, starting the load if it has
+	 * not been prefetched.
+	 *
+	 * @param paneId   Identifier of the panel
+	 * @param pane     Panel that shows the content
+	 */
+	public void deliver(int paneId, PrefetchablePane pane) {
+
+		prefetch(paneId);
+
+		Request request = mRequests.get(paneId);
+
+		if (request == null) {
+			return;
+		}
+
+		request.target = pane;
+
+		if (request.loaded) {
+			complete(request);
+		}
+	}
+
+	/**
+	 * Stops the background thread and discards the loads that have not been delivered
+	 */
+	public void shutdown() {
+
+		mExecutor.shutdownNow();
+		mHandler.removeCallbacksAndMessages(null);
+		mRequests.clear();
+	}
+
+	private void onLoaded(Request request, Object content) {
+
+		// The request may have been replaced by a newer one for the same panel
+		if (mRequests.get(request.paneId) != request) {
+			return;
+		}
+
+		request.content = content;
+		request.loaded = true;
+
+		if (request.target != null) {
+			complete(request);
+		}
+	}
+
+	private void complete(Request request) {
+
+		mRequests.remove(request.paneId);
+		request.target.onContentLoaded(request.content);
+	}
+
+}
@@ -1,27 +1,35 @@
 package com.panels.ui;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+
 import android.app.Activity;
 import android.app.Fragment;
+import android.content.res.Resources;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.View.OnClickListener;
 import android.view.ViewGroup;
 import android.widget.ImageView;
+import android.widget.TextView;
 
 import com.panels.controls.ThreePaneLayout;
 import com.panels.controls.ThreePaneLayout.VisibilityState;
 import com.panels.R;
 
 public class TaskDetailFragment extends Fragment implements 
-		OnClickListener,  ThreePaneLayout.OnStateChangeListener {
+		OnClickListener,  ThreePaneLayout.OnStateChangeListener, PanePrefetcher.PrefetchablePane {
 	
 	private OnTaskDetailSizeControlListener mListener;
 	
 	private ImageView mArrowSizeControl;
+	private TextView mDetailText;
 	
-	private Handler mHandler = new Handler();
+	// Content loaded in advance, kept until the view of the fragment is created
+	private CharSequence mContent;
 	
 	public TaskDetailFragment() {/**/}
 
@@ -57,6 +65,12 @@ public class TaskDetailFragment extends Fragment implements
 		mArrowSizeControl = (ImageView) view.findViewById(R.id.detailLeftArrow);
 		mArrowSizeControl.setOnClickListener(this);
 		
+		mDetailText = (TextView) view.findViewById(R.id.detailText);
+		
+		if (mContent != null) {
+			mDetailText.setText(mContent);
+		}
+		
 		return view;
 	}
 
@@ -68,28 +82,70 @@ public class TaskDetailFragment extends Fragment implements
 		} 
 	}
 
-	@Override
-	public void onBeginTransitionState(VisibilityState oldState, VisibilityState newState) { /**/ }
-
-
-	@Override
-	public void onNewStateVisible(final VisibilityState newState) {
+	/**
+	 * Creates the loader of the content of the panel, which reads the detail of the task from the resources. 
+	 * It does not depend on the fragment, so the content can be loaded before the fragment is created.
+	 * 
+	 * @param resources   Resources of the application
+	 */
+	public static PanePrefetcher.ContentLoader newContentLoader(final Resources resources) {
 		
-		mHandler.postDelayed(new Runnable() {
-
+		return new PanePrefetcher.ContentLoader() {
 			@Override
-			public void run() {
+			public Object loadContent() {
 				
-				if (newState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
+				StringBuilder content = new StringBuilder();
+				char[] buffer = new char[1024];
+				
+				try {
 					
-					mArrowSizeControl.setImageResource(R.drawable.ic_left);
+					InputStream in = resources.openRawResource(R.raw.task_detail);
+					Reader reader = new InputStreamReader(in, "UTF-8");
 					
-				} else if (newState == VisibilityState.RIGHT_VISIBLE) {
+					try {
+						for (int count; (count = reader.read(buffer)) != -1; ) {
+							content.append(buffer, 0, count);
+						}
+					} finally {
+						reader.close();
+					}
 					
-					mArrowSizeControl.setImageResource(R.drawable.ic_right);
+				} catch (IOException e) {
+					throw new RuntimeException("Error reading the detail of the task", e);
 				}
+				
+				return content.toString().trim();
 			}
+		};
+	}
+
+	@Override
+	public void onContentLoaded(Object content) {
+		
+		mContent = (CharSequence) content;
+		
+		if (mDetailText != null && mContent != null) {
+			mDetailText.setText(mContent);
+		}
+	}
+
+	@Override
+	public void onBeginTransitionState(VisibilityState oldState, VisibilityState newState) { /**/ }
+
+
+	@Override
+	public void onNewStateVisible(VisibilityState newState) { /**/ }
+
+	@Override
+	public void onTransitionFinished(VisibilityState newState) {
+		
+		if (newState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE || newState == VisibilityState.ALL_VISIBLE) {
+			
+			mArrowSizeControl.setImageResource(R.drawable.ic_left);
+			
+		} else if (newState == VisibilityState.RIGHT_VISIBLE) {
 			
-		}, ThreePaneLayout.ANIMATION_DURATION);
+			mArrowSizeControl.setImageResource(R.drawable.ic_right);
+		}
 	}
 }
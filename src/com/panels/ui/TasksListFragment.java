@@ -3,10 +3,11 @@ package com.panels.ui;
 import android.app.Activity;
 import android.app.Fragment;
 import android.os.Bundle;
-import android.os.Handler;
 import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnClickListener;
+import android.view.View.OnTouchListener;
 import android.view.ViewGroup;
 import android.widget.ImageView;
 
@@ -15,15 +16,13 @@ import com.panels.controls.ThreePaneLayout.VisibilityState;
 import com.panels.R;
 
 public class TasksListFragment extends Fragment implements 
-		OnClickListener,  ThreePaneLayout.OnStateChangeListener {
+		OnClickListener, OnTouchListener, ThreePaneLayout.OnStateChangeListener {
 
 	OnTasksListSizeControlListener mListener;
 	
 	private ImageView mLeftArrowSizeControl;
 	private ImageView mRightArrowSizeControl;
 	
-	private Handler mHandler = new Handler();
-
 	public TasksListFragment() { /**/ }
 
 	public interface OnTasksListSizeControlListener {
@@ -37,6 +36,15 @@ public class TasksListFragment extends Fragment implements
 		 *                      otherwise.
 		 */
 		void onTasksListSizeControlSelected(boolean leftControl);
+		
+		/**
+		 * Method invoked when some redirection arrow on panel is touched, before it is selected. 
+		 * Used to start loading the content of the panels that the arrow is going to show.
+		 * 
+		 * @param leftControl   <i>true</i> si se toca la flecha izquierda, <i>false</i>
+		 *                      otherwise.
+		 */
+		void onTasksListSizeControlPressed(boolean leftControl);
 	}
 	
     public static TasksListFragment newInstance() {
@@ -63,8 +71,22 @@ public class TasksListFragment extends Fragment implements
 		mLeftArrowSizeControl.setOnClickListener(this);
 		mRightArrowSizeControl.setOnClickListener(this);
 		
+		mLeftArrowSizeControl.setOnTouchListener(this);
+		mRightArrowSizeControl.setOnTouchListener(this);
+		
 		return view;
 	}
+	
+	@Override
+	public boolean onTouch(View view, MotionEvent event) {
+		
+		if (event.getActionMasked() == MotionEvent.ACTION_DOWN) {
+			mListener.onTasksListSizeControlPressed(view == mLeftArrowSizeControl);
+		}
+		
+		// The touch is not consumed, so the click is still delivered
+		return false;
+	}
 
 	@Override
 	public void onClick(View view) {
@@ -82,30 +104,30 @@ public class TasksListFragment extends Fragment implements
 
 
 	@Override
-	public void onNewStateVisible(final VisibilityState newState) {
-		
-		mHandler.postDelayed(new Runnable() {
+	public void onNewStateVisible(VisibilityState newState) { /**/ }
 
-			@Override
-			public void run() {
-				
-				if (newState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
-					
-					mLeftArrowSizeControl.setImageResource(R.drawable.ic_left);
-					mRightArrowSizeControl.setImageResource(R.drawable.ic_left);
-					
-				} else if (newState == VisibilityState.MIDDLE_VISIBLE) {
-					
-					mLeftArrowSizeControl.setImageResource(R.drawable.ic_right);
-					mRightArrowSizeControl.setImageResource(R.drawable.ic_left);
-				
-				} else if (newState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
-					
-					mLeftArrowSizeControl.setImageResource(R.drawable.ic_right);
-					mRightArrowSizeControl.setImageResource(R.drawable.ic_right);
-				} 
-			}
+	@Override
+	public void onTransitionFinished(VisibilityState newState) {
+		
+		if (newState == VisibilityState.LEFT_AND_MIDDLE_VISIBLE) {
+			
+			mLeftArrowSizeControl.setImageResource(R.drawable.ic_left);
+			mRightArrowSizeControl.setImageResource(R.drawable.ic_left);
+			
+		} else if (newState == VisibilityState.MIDDLE_VISIBLE) {
 			
-		}, ThreePaneLayout.ANIMATION_DURATION);
+			mLeftArrowSizeControl.setImageResource(R.drawable.ic_right);
+			mRightArrowSizeControl.setImageResource(R.drawable.ic_left);
+		
+		} else if (newState == VisibilityState.MIDDLE_AND_RIGHT_VISIBLE) {
+			
+			mLeftArrowSizeControl.setImageResource(R.drawable.ic_right);
+			mRightArrowSizeControl.setImageResource(R.drawable.ic_right);
+			
+		} else if (newState == VisibilityState.ALL_VISIBLE) {
+			
+			mLeftArrowSizeControl.setImageResource(R.drawable.ic_left);
+			mRightArrowSizeControl.setImageResource(R.drawable.ic_right);
+		}
 	}
 }
@@ -0,0 +1,67 @@
+package com.panels.controls;
+
+import android.app.Activity;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.View;
+
+import com.panels.ui.MainActivity;
+
+/**
+ * <p>Base class of the tests that drive a control attached to a window. The control replaces the content
+ * of {@link MainActivity}, so the fragments of the application do not add measure or layout passes of
+ * their own.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public abstract class ControlTestCase extends ActivityInstrumentationTestCase2<MainActivity> {
+
+	public ControlTestCase() {
+		super(MainActivity.class);
+	}
+
+	/**
+	 * Creates the control on the main thread, sets it as the content of the activity and waits until
+	 * it has been laid out
+	 *
+	 * @param factory   Creates the control from the activity
+	 * @return          The control
+	 */
+	protected <T extends View> T attachControl(final ControlFactory<T> factory) {
+
+		final Activity activity = getActivity();
+		final Object[] control = new Object[1];
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				control[0] = factory.create(activity);
+				activity.setContentView((View) control[0]);
+			}
+		});
+
+		@SuppressWarnings("unchecked")
+		T result = (T) control[0];
+
+		return result;
+	}
+
+	/**
+	 * Runs the code received as parameter on the main thread and waits until the pending measure, layout
+	 * and drawing have been done
+	 */
+	protected void runOnMainSync(Runnable runnable) {
+
+		getInstrumentation().runOnMainSync(runnable);
+		getInstrumentation().waitForIdleSync();
+	}
+
+	/**
+	 * Creates the control under test on the main thread
+	 */
+	protected interface ControlFactory<T extends View> {
+
+		T create(Activity activity);
+	}
+}
@@ -0,0 +1,154 @@
+package com.panels.controls;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.panels.controls.NPaneLayout.OnPanesChangeListener;
+
+/**
+ * Checks the number of views that {@link NPaneLayout} creates and keeps while the user navigates. The
+ * control shows up to two panels of plain views.
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class NPaneLayoutTest extends ControlTestCase {
+
+	private static final int PANE_COUNT = 20;
+
+	private static final int MAX_VISIBLE_PANES = 2;
+
+	private static final long TIMEOUT_MS = 5000;
+
+	private NPaneLayout mControl;
+
+	// Number of views created by the adapter
+	private int mCreatedViews;
+
+	private final NPaneLayout.Adapter mAdapter = new NPaneLayout.Adapter() {
+
+		@Override
+		public int getPaneCount() {
+			return PANE_COUNT;
+		}
+
+		@Override
+		public View createPaneView(ViewGroup parent, int viewType) {
+
+			mCreatedViews++;
+
+			return new View(parent.getContext());
+		}
+
+		@Override
+		public void bindPaneView(View view, int position) {
+			view.setTag(Integer.valueOf(position));
+		}
+	};
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mControl = attachControl(new ControlFactory<NPaneLayout>() {
+			@Override
+			public NPaneLayout create(Activity activity) {
+
+				NPaneLayout control = new NPaneLayout(activity);
+
+				control.setMaxVisiblePanes(MAX_VISIBLE_PANES);
+				control.setAdapter(mAdapter);
+				control.showPane(1, false);
+
+				return control;
+			}
+		});
+
+		assertEquals(2, mControl.getChildCount());
+	}
+
+	public void testNavigationReusesTheViews() {
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				for (int position = 2; position < PANE_COUNT; position++) {
+					mControl.showPane(position, false);
+				}
+			}
+		});
+
+		assertEquals(MAX_VISIBLE_PANES, mCreatedViews);
+		assertEquals(MAX_VISIBLE_PANES, mControl.getChildCount());
+		assertEquals(Integer.valueOf(PANE_COUNT - 1), mControl.getPaneView(PANE_COUNT - 1).getTag());
+	}
+
+	/**
+	 * Moving to the next panel adds the view of the panel that enters the control
+	 */
+	public void testStepUsesTheVisiblePanesPlusOne() throws InterruptedException {
+
+		CountDownLatch panesVisible = showPaneAnimated(2, MAX_VISIBLE_PANES + 1);
+
+		assertTrue("The transition did not end", panesVisible.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		getInstrumentation().waitForIdleSync();
+
+		assertEquals(1, mControl.getFirstVisiblePane());
+		assertEquals(MAX_VISIBLE_PANES, mControl.getChildCount());
+	}
+
+	/**
+	 * Jumping to a distant panel only creates the views of the new visible panels, not the ones of the
+	 * panels between them
+	 */
+	public void testJumpSkipsThePanesInBetween() throws InterruptedException {
+
+		CountDownLatch panesVisible = showPaneAnimated(PANE_COUNT - 1, MAX_VISIBLE_PANES * 2);
+
+		assertTrue("The transition did not end", panesVisible.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+		getInstrumentation().waitForIdleSync();
+
+		assertEquals(PANE_COUNT - MAX_VISIBLE_PANES, mControl.getFirstVisiblePane());
+		assertEquals(MAX_VISIBLE_PANES, mControl.getChildCount());
+		assertEquals(MAX_VISIBLE_PANES * 2, mCreatedViews);
+	}
+
+	/**
+	 * Starts an animated transition to the panel received as parameter and checks the number of views of
+	 * the control when it starts
+	 *
+	 * @param position     Position of the panel
+	 * @param childCount   Expected number of views during the transition
+	 * @return             Latch released when the panels reach their final position
+	 */
+	private CountDownLatch showPaneAnimated(final int position, int childCount) {
+
+		final CountDownLatch panesVisible = new CountDownLatch(1);
+		final int[] transitionChildCount = new int[1];
+
+		getInstrumentation().runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.setOnPanesChangeListener(new OnPanesChangeListener() {
+					@Override
+					public void onPanesVisible(int firstVisiblePane, int visiblePaneCount) {
+						panesVisible.countDown();
+					}
+				});
+
+				mControl.showPane(position, true);
+				transitionChildCount[0] = mControl.getChildCount();
+			}
+		});
+
+		assertEquals(childCount, transitionChildCount[0]);
+
+		return panesVisible;
+	}
+}
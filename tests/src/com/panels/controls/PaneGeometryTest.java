@@ -0,0 +1,267 @@
+package com.panels.controls;
+
+import junit.framework.TestCase;
+
+/**
+ * Enumerates the navigation, drag and size class transitions of {@link PaneGeometry} for every state,
+ * direction and number of visible panels. The class does not depend on the Android framework.
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class PaneGeometryTest extends TestCase {
+
+	private static final int L   = PaneGeometry.LEFT_VISIBLE;
+	private static final int LM  = PaneGeometry.LEFT_AND_MIDDLE_VISIBLE;
+	private static final int M   = PaneGeometry.MIDDLE_VISIBLE;
+	private static final int MR  = PaneGeometry.MIDDLE_AND_RIGHT_VISIBLE;
+	private static final int R   = PaneGeometry.RIGHT_VISIBLE;
+	private static final int ALL = PaneGeometry.ALL_VISIBLE;
+
+	private static final int NONE = -1;
+
+	/**
+	 * Expected result of navigationTarget() by number of visible panels - 1, state and direction (left pane,
+	 * middle pane to the left, middle pane to the right, right pane). The states that are not available
+	 * with a number of panels are included too, the control looks them up while it is restoring its state.
+	 */
+	private static final int[][][] NAVIGATION_TARGETS = {
+		{	// One panel
+			{ M,    NONE, R,    M    },	// L
+			{ M,    L,    R,    M    },	// LM
+			{ NONE, L,    R,    NONE },	// M
+			{ M,    L,    R,    M    },	// MR
+			{ M,    L,    NONE, M    },	// R
+			{ M,    L,    R,    M    },	// ALL
+		},
+		{	// Two panels
+			{ LM,   NONE, NONE, NONE },	// L
+			{ L,    M,    MR,   NONE },	// LM
+			{ NONE, LM,   MR,   NONE },	// M
+			{ NONE, LM,   M,    R    },	// MR
+			{ NONE, NONE, NONE, MR   },	// R
+			{ L,    MR,   LM,   R    },	// ALL
+		},
+		{	// Three panels
+			{ ALL,  NONE, NONE, NONE },	// L
+			{ L,    M,    ALL,  NONE },	// LM
+			{ NONE, LM,   MR,   NONE },	// M
+			{ NONE, ALL,  M,    R    },	// MR
+			{ NONE, NONE, NONE, ALL  },	// R
+			{ L,    MR,   LM,   R    },	// ALL
+		},
+	};
+
+	public void testNavigationTargets() {
+
+		for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+			for (int state = 0; state < PaneGeometry.STATE_COUNT; state++) {
+				for (int direction = 0; direction < PaneGeometry.DIRECTION_COUNT; direction++) {
+
+					assertEquals("panes=" + panes + " state=" + state + " direction=" + direction,
+							NAVIGATION_TARGETS[panes - 1][state][direction],
+							PaneGeometry.navigationTarget(state, direction, panes));
+				}
+			}
+		}
+	}
+
+	public void testNavigationTargetsFitInTheVisiblePanes() {
+
+		for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+			for (int state = 0; state < PaneGeometry.STATE_COUNT; state++) {
+				for (int direction = 0; direction < PaneGeometry.DIRECTION_COUNT; direction++) {
+
+					int target = PaneGeometry.navigationTarget(state, direction, panes);
+					String message = "panes=" + panes + " state=" + state + " direction=" + direction;
+
+					if (target != NONE) {
+						assertTrue(message, PaneGeometry.getVisiblePanes(target) <= panes);
+						assertTrue(message, target != state);
+					}
+				}
+			}
+		}
+	}
+
+	public void testEveryStateIsReachableByNavigation() {
+
+		for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+			for (int from = 0; from < PaneGeometry.STATE_COUNT; from++) {
+
+				if (!isAvailable(from, panes)) {
+					continue;
+				}
+
+				boolean[] reached = reachableStates(from, panes);
+
+				for (int state = 0; state < PaneGeometry.STATE_COUNT; state++) {
+					assertEquals("panes=" + panes + " from=" + from + " to=" + state,
+							isAvailable(state, panes), reached[state]);
+				}
+			}
+		}
+	}
+
+	public void testAdjacentStates() {
+
+		for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+			for (int state = 0; state < PaneGeometry.STATE_COUNT; state++) {
+
+				if (!isAvailable(state, panes)) {
+					continue;
+				}
+
+				for (int direction = -1; direction <= 1; direction += 2) {
+
+					int adjacent = PaneGeometry.adjacentState(state, direction, panes);
+					String message = "panes=" + panes + " state=" + state + " direction=" + direction;
+
+					if (state == ALL) {
+						assertEquals(message, NONE, adjacent);
+					} else if (adjacent != NONE) {
+						// The drag only moves between available states, and can always go back
+						assertTrue(message, isAvailable(adjacent, panes));
+						assertEquals(message, state, PaneGeometry.adjacentState(adjacent, -direction, panes));
+					}
+				}
+			}
+		}
+
+		assertEquals(M, PaneGeometry.adjacentState(L, 1, 1));
+		assertEquals(LM, PaneGeometry.adjacentState(L, 1, 2));
+		assertEquals(NONE, PaneGeometry.adjacentState(R, 1, 3));
+	}
+
+	public void testStateForSizeClassFitsAndRoundTrips() {
+
+		for (int requestedPanes = 1; requestedPanes <= PaneGeometry.PANE_COUNT; requestedPanes++) {
+			for (int requested = 0; requested < PaneGeometry.STATE_COUNT; requested++) {
+
+				if (!isAvailable(requested, requestedPanes)) {
+					continue;
+				}
+
+				for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+
+					int state = PaneGeometry.stateForSizeClass(requested, requestedPanes, panes);
+					assertTrue("requested=" + requested + " panes=" + panes, isAvailable(state, panes));
+				}
+
+				// Going back to the size class in which the state was requested shows it again
+				assertEquals(requested, PaneGeometry.stateForSizeClass(requested, requestedPanes, requestedPanes));
+			}
+		}
+
+		// The left panel shown with one panel is extended with more panels
+		assertEquals(LM, PaneGeometry.stateForSizeClass(L, 1, 3));
+		assertEquals(ALL, PaneGeometry.stateForSizeClass(MR, 2, 3));
+
+		// The states requested with more panels are kept while they fit
+		assertEquals(MR, PaneGeometry.stateForSizeClass(MR, 3, 2));
+		assertEquals(R, PaneGeometry.stateForSizeClass(ALL, 3, 1));
+	}
+
+	public void testBounds() {
+
+		PaneGeometry two = new PaneGeometry(1000, new BreakpointPolicy.SizeClass(0, 2, 0.35f));
+
+		assertBounds(two, LM, 0, 350, 350, 650, 1000, 650);
+		assertBounds(two, MR, -350, 350, 0, 350, 350, 650);
+		assertBounds(two, R, -700, 350, -350, 350, 0, 1000);
+
+		PaneGeometry three = new PaneGeometry(1000, new BreakpointPolicy.SizeClass(0, 3, 0.35f, 0.25f, 0.35f));
+
+		assertBounds(three, ALL, 0, 250, 250, 350, 600, 400);
+
+		PaneGeometry one = new PaneGeometry(480, new BreakpointPolicy.SizeClass(0, 1, 0.35f));
+
+		assertBounds(one, M, -480, 480, 0, 480, 480, 480);
+	}
+
+	/**
+	 * The panels are contiguous and the visible ones fill the control at every width
+	 */
+	public void testBoundsFillTheControlAtEveryWidth() {
+
+		BreakpointPolicy.SizeClass[] sizeClasses = {
+			new BreakpointPolicy.SizeClass(0, 1, 0.35f),
+			new BreakpointPolicy.SizeClass(0, 2, 0.3f),
+			new BreakpointPolicy.SizeClass(0, 3, 0.35f, 0.2f, 0.45f),
+		};
+
+		for (BreakpointPolicy.SizeClass sizeClass : sizeClasses) {
+			for (int width = 1; width <= 2560; width++) {
+
+				PaneGeometry geometry = new PaneGeometry(width, sizeClass);
+
+				for (int state = 0; state < PaneGeometry.STATE_COUNT; state++) {
+
+					if (!isAvailable(state, sizeClass.getMaxVisiblePanes())) {
+						continue;
+					}
+
+					String message = "width=" + width + " state=" + state;
+					int visibleWidth = 0;
+
+					for (int pane = 0; pane < PaneGeometry.PANE_COUNT; pane++) {
+
+						int x = geometry.getX(state, pane);
+
+						if (pane > 0) {
+							assertEquals(message, geometry.getX(state, pane - 1) + geometry.getWidth(state, pane - 1), x);
+						}
+
+						if (x >= 0 && x < width) {
+							visibleWidth += geometry.getWidth(state, pane);
+						}
+					}
+
+					assertEquals(message, width, visibleWidth);
+				}
+			}
+		}
+	}
+
+	private static void assertBounds(PaneGeometry geometry, int state, int... bounds) {
+
+		for (int pane = 0; pane < PaneGeometry.PANE_COUNT; pane++) {
+			assertEquals("state=" + state + " pane=" + pane, bounds[pane * 2], geometry.getX(state, pane));
+			assertEquals("state=" + state + " pane=" + pane, bounds[pane * 2 + 1], geometry.getWidth(state, pane));
+		}
+	}
+
+	private static boolean isAvailable(int state, int panes) {
+		return PaneGeometry.getVisiblePanes(state) <= panes;
+	}
+
+	/**
+	 * Returns the states that can be reached from the one received as parameter using the navigation controls
+	 */
+	private static boolean[] reachableStates(int from, int panes) {
+
+		boolean[] reached = new boolean[PaneGeometry.STATE_COUNT];
+		int[] pending = new int[PaneGeometry.STATE_COUNT];
+		int pendingCount = 0;
+
+		reached[from] = true;
+		pending[pendingCount++] = from;
+
+		while (pendingCount > 0) {
+
+			int state = pending[--pendingCount];
+
+			for (int direction = 0; direction < PaneGeometry.DIRECTION_COUNT; direction++) {
+
+				int target = PaneGeometry.navigationTarget(state, direction, panes);
+
+				if (target != NONE && !reached[target]) {
+					reached[target] = true;
+					pending[pendingCount++] = target;
+				}
+			}
+		}
+
+		return reached;
+	}
+}
@@ -0,0 +1,252 @@
+package com.panels.controls;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.os.Debug;
+
+import com.panels.controls.ThreePaneLayout.LayerPolicy;
+import com.panels.controls.ThreePaneLayout.OnStateChangeListener;
+import com.panels.controls.ThreePaneLayout.TransitionMode;
+import com.panels.controls.ThreePaneLayout.VisibilityState;
+
+/**
+ * <p>Counts the objects allocated on the main thread by the start, one frame and the end of a transition,
+ * and compares them with the objects allocated by a bare {@link ValueAnimator} with as many listeners as
+ * the animator of the control. The animator of the framework copies its listeners when it starts and ends,
+ * so the counts are not zero: the tests check that the control does not add any allocation of its own,
+ * whether it is traced and has observers or not.</p>
+ *
+ * <p>The control uses {@link LayerPolicy#NONE}, the hardware layers are created by the framework.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class ThreePaneLayoutAllocationTest extends ThreePaneLayoutTestCase {
+
+	private static final int OBSERVER_COUNT = 8;
+
+	private static final long TIMEOUT_MS = 5000;
+
+	// Indexes of the counts of each phase of a transition
+	private static final int START = 0;
+	private static final int FRAME = 1;
+	private static final int END   = 2;
+
+	// Observer that does not allocate, so only the allocations of the control are counted
+	private final OnStateChangeListener mObserver = new OnStateChangeListener() {
+
+		@Override
+		public void onBeginTransitionState(VisibilityState oldState, VisibilityState newState) { /**/ }
+
+		@Override
+		public void onNewStateVisible(VisibilityState newState) { /**/ }
+
+		@Override
+		public void onTransitionFinished(VisibilityState newState) { /**/ }
+	};
+
+	private CountDownLatch mTransitionLatch;
+
+	// Releases the latch of the transitions that are left to end by themselves
+	private final OnStateChangeListener mFinishObserver = new OnStateChangeListener() {
+
+		@Override
+		public void onBeginTransitionState(VisibilityState oldState, VisibilityState newState) { /**/ }
+
+		@Override
+		public void onNewStateVisible(VisibilityState newState) { /**/ }
+
+		@Override
+		public void onTransitionFinished(VisibilityState newState) {
+			mTransitionLatch.countDown();
+		}
+	};
+
+	// Listeners of the same kind as the ones of the animator of the control, that do not allocate
+	private final ValueAnimator.AnimatorUpdateListener mUpdateListener = new ValueAnimator.AnimatorUpdateListener() {
+		@Override
+		public void onAnimationUpdate(ValueAnimator animation) { /**/ }
+	};
+
+	private final AnimatorListenerAdapter mEndListener = new AnimatorListenerAdapter() {
+		@Override
+		public void onAnimationEnd(Animator animation) { /**/ }
+	};
+
+	private final int[] mAllocations = new int[3];
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.setTransitionMode(TransitionMode.TRANSLATE_AND_CLIP);
+				mControl.setLayerPolicy(LayerPolicy.NONE);
+			}
+		});
+
+		warmUp();
+	}
+
+	public void testTransitionAllocatesAsMuchAsTheAnimator() {
+
+		int[] animator = countAnimatorAllocations();
+		int[] transition = countTransitionAllocations(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
+
+		assertAllocations(animator, transition);
+	}
+
+	public void testTracedTransitionWithObserversAllocatesAsMuchAsTheAnimator() throws InterruptedException {
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.setTransitionTracer(new TransitionTracer());
+
+				for (int i = 0; i < OBSERVER_COUNT; i++) {
+					mControl.addStateObserver(mObserver);
+				}
+			}
+		});
+
+		warmUp();
+
+		int[] animator = countAnimatorAllocations();
+		int[] transition = countTransitionAllocations(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
+
+		assertAllocations(animator, transition);
+	}
+
+	private static void assertAllocations(int[] animator, int[] transition) {
+
+		assertEquals("Allocations of the start", animator[START], transition[START]);
+		assertEquals("Allocations of a frame", animator[FRAME], transition[FRAME]);
+		assertEquals("Allocations of the end", animator[END], transition[END]);
+	}
+
+	/**
+	 * Returns the number of objects allocated by the start, one frame and the end of a bare animator with
+	 * as many listeners as the animator of the control. The animator is run once before counting.
+	 */
+	private int[] countAnimatorAllocations() {
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+				animator.setDuration(ThreePaneLayout.ANIMATION_DURATION);
+
+				animator.addUpdateListener(mUpdateListener);
+				animator.addListener(mEndListener);
+				animator.addListener(mEndListener);
+
+				animator.start();
+				animator.setCurrentPlayTime(ThreePaneLayout.ANIMATION_DURATION / 2);
+				animator.end();
+
+				startCounting();
+				animator.start();
+				mAllocations[START] = stopCounting();
+
+				startCounting();
+				animator.setCurrentPlayTime(ThreePaneLayout.ANIMATION_DURATION / 2);
+				mAllocations[FRAME] = stopCounting();
+
+				startCounting();
+				animator.end();
+				mAllocations[END] = stopCounting();
+			}
+		});
+
+		return mAllocations.clone();
+	}
+
+	/**
+	 * Starts a transition to the state received as parameter and returns the number of objects allocated
+	 * by the call that starts it, by one frame and by its end. The frame and the end are run right after
+	 * the start, so the transition is never retargeted or cancelled by another one.
+	 */
+	private int[] countTransitionAllocations(final VisibilityState state) {
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				startCounting();
+				mControl.setVisibilityState(state);
+				mAllocations[START] = stopCounting();
+
+				startCounting();
+				mControl.mTransitionAnimator.setCurrentPlayTime(ThreePaneLayout.ANIMATION_DURATION / 2);
+				mAllocations[FRAME] = stopCounting();
+
+				startCounting();
+				mControl.mTransitionAnimator.end();
+				mAllocations[END] = stopCounting();
+			}
+		});
+
+		assertEquals(state, mControl.getVisibityState());
+
+		return mAllocations.clone();
+	}
+
+	/**
+	 * Runs a transition forth and back, so the animator is created and the classes used by the transitions
+	 * are loaded before counting
+	 */
+	private void warmUp() throws InterruptedException {
+
+		runTransition(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
+		runTransition(VisibilityState.LEFT_AND_MIDDLE_VISIBLE);
+	}
+
+	/**
+	 * Moves the control to the state received as parameter and waits until the transition ends by itself
+	 */
+	private void runTransition(final VisibilityState state) throws InterruptedException {
+
+		mTransitionLatch = new CountDownLatch(1);
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.addStateObserver(mFinishObserver);
+				mControl.setVisibilityState(state);
+			}
+		});
+
+		assertTrue("The transition to " + state + " did not end",
+				mTransitionLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				mControl.deleteStatetObserver(mFinishObserver);
+			}
+		});
+	}
+
+	private static void startCounting() {
+
+		Debug.resetThreadAllocCount();
+		Debug.startAllocCounting();
+	}
+
+	private static int stopCounting() {
+
+		Debug.stopAllocCounting();
+
+		return Debug.getThreadAllocCount();
+	}
+}
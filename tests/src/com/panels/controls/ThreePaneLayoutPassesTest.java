@@ -0,0 +1,173 @@
+package com.panels.controls;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import android.os.Build;
+
+import com.panels.controls.ThreePaneLayout.OnTransitionMetricsListener;
+import com.panels.controls.ThreePaneLayout.TransitionMode;
+import com.panels.controls.ThreePaneLayout.VisibilityState;
+
+/**
+ * <p>Checks the measure and layout passes reported by {@link TransitionMetrics} for every transition between
+ * two states that the control can show, with one, two and three panels visible at the same time, against
+ * the budget of each transition mode. The number of visible panels is what the orientation of the device
+ * used to decide, so the size classes also cover the transitions of both orientations.</p>
+ *
+ * <p>The metrics are only reported on devices with API level 16 or higher, the tests do nothing on older
+ * devices.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class ThreePaneLayoutPassesTest extends ThreePaneLayoutTestCase {
+
+	private static final long TIMEOUT_MS = 5000;
+
+	/**
+	 * Budget of a transition by transition mode: layout passes of the control that do not depend on the
+	 * animation, and layout passes per frame of the animation. Each pass measures and lays out the control
+	 * once and each panel at most once.
+	 */
+	private static final int[][] PASS_BUDGET = {
+		{ 2, 1 },	// RELAYOUT: the first frame, one pass per frame and the final placement
+		{ 2, 0 },	// TRANSLATE_AND_CLIP: the transition bounds and the final widths
+		{ 2, 0 },	// SNAPSHOT: as TRANSLATE_AND_CLIP, the snapshots are rendered after the first pass
+	};
+
+	private CountDownLatch mMetricsLatch;
+
+	// Copied from the metrics, the control reuses the instance
+	private int mFrameCount;
+	private int mMeasureCount;
+	private int mLayoutCount;
+	private int mPaneMeasureCount;
+	private int mPaneLayoutCount;
+
+	private final OnTransitionMetricsListener mMetricsListener = new OnTransitionMetricsListener() {
+		@Override
+		public void onTransitionMetrics(TransitionMetrics metrics) {
+
+			mFrameCount = metrics.getFrameCount();
+			mMeasureCount = metrics.getMeasureCount();
+			mLayoutCount = metrics.getLayoutCount();
+			mPaneMeasureCount = metrics.getPaneMeasureCount();
+			mPaneLayoutCount = metrics.getPaneLayoutCount();
+
+			mMetricsLatch.countDown();
+		}
+	};
+
+	public void testTranslateAndClipTransitionsStayInBudget() throws InterruptedException {
+		checkEveryTransition(TransitionMode.TRANSLATE_AND_CLIP);
+	}
+
+	public void testSnapshotTransitionsStayInBudget() throws InterruptedException {
+		checkEveryTransition(TransitionMode.SNAPSHOT);
+	}
+
+	public void testRelayoutTransitionsStayInBudget() throws InterruptedException {
+		checkEveryTransition(TransitionMode.RELAYOUT);
+	}
+
+	/**
+	 * The relayout transitions change the width of the panels on every frame
+	 */
+	public void testRelayoutTransitionLaysOutEveryFrame() throws InterruptedException {
+
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			return;
+		}
+
+		runTransition(TransitionMode.RELAYOUT, VisibilityState.LEFT_AND_MIDDLE_VISIBLE,
+				VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
+
+		assertTrue("Layout passes: " + mLayoutCount, mLayoutCount > PASS_BUDGET[TransitionMode.RELAYOUT.ordinal()][0]);
+	}
+
+	/**
+	 * Runs every transition between two different states that fit in one, two and three panels with the
+	 * transition mode received as parameter, and checks the passes of each one
+	 */
+	private void checkEveryTransition(TransitionMode mode) throws InterruptedException {
+
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN) {
+			return;
+		}
+
+		VisibilityState[] states = VisibilityState.values();
+
+		for (int panes = 1; panes <= PaneGeometry.PANE_COUNT; panes++) {
+
+			setMaxVisiblePanes(panes);
+
+			for (VisibilityState from : states) {
+				for (VisibilityState to : states) {
+
+					if (from == to || PaneGeometry.getVisiblePanes(from.ordinal()) > panes
+							|| PaneGeometry.getVisiblePanes(to.ordinal()) > panes) {
+						continue;
+					}
+
+					runTransition(mode, from, to);
+					assertInBudget(mode, "panes=" + panes + " " + from + " -> " + to);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Checks the four counts of the last transition against the budget of the transition mode
+	 */
+	private void assertInBudget(TransitionMode mode, String transition) {
+
+		int[] budget = PASS_BUDGET[mode.ordinal()];
+		int passes = budget[0] + budget[1] * mFrameCount;
+
+		String message = transition + " frames=" + mFrameCount + " measures=" + mMeasureCount + " layouts="
+				+ mLayoutCount + " paneMeasures=" + mPaneMeasureCount + " paneLayouts=" + mPaneLayoutCount;
+
+		assertTrue(message, mMeasureCount <= passes);
+		assertTrue(message, mLayoutCount <= passes);
+		assertTrue(message, mPaneMeasureCount <= passes * PaneGeometry.PANE_COUNT);
+		assertTrue(message, mPaneLayoutCount <= passes * PaneGeometry.PANE_COUNT);
+	}
+
+	/**
+	 * Places the control in the first state received as parameter without animation, moves it to the second
+	 * one with the given transition mode and waits for the metrics of the transition
+	 */
+	private void runTransition(final TransitionMode mode, final VisibilityState from, final VisibilityState to)
+			throws InterruptedException {
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.setOnTransitionMetricsListener(null);
+				mControl.setVisibilityState(from, true);
+			}
+		});
+
+		assertEquals(from, mControl.getVisibityState());
+
+		mMetricsLatch = new CountDownLatch(1);
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.setTransitionMode(mode);
+				mControl.setOnTransitionMetricsListener(mMetricsListener);
+				mControl.setVisibilityState(to);
+			}
+		});
+
+		assertTrue("The metrics of the transition " + from + " -> " + to + " were not reported",
+				mMetricsLatch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+		// The next transition starts from a control without pending passes
+		getInstrumentation().waitForIdleSync();
+	}
+}
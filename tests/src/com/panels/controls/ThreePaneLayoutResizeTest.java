@@ -0,0 +1,57 @@
+package com.panels.controls;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.panels.controls.ThreePaneLayout.TransitionMode;
+import com.panels.controls.ThreePaneLayout.VisibilityState;
+
+/**
+ * <p>Checks that a change of the width of the control in the middle of a transition (e.g. a rotation of the
+ * device) places the panels in the current state, without the translations left by the transition.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public class ThreePaneLayoutResizeTest extends ThreePaneLayoutTestCase {
+
+	public void testResizeDuringTransitionClearsTranslations() {
+
+		final boolean[] translated = new boolean[1];
+
+		// The width changes before the next frame of the transition
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+
+				mControl.setTransitionMode(TransitionMode.TRANSLATE_AND_CLIP);
+				mControl.setVisibilityState(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE);
+				mControl.mTransitionAnimator.setCurrentPlayTime(mControl.mTransitionAnimator.getDuration() / 2);
+
+				translated[0] = hasTranslatedPane();
+
+				ViewGroup.LayoutParams params = mControl.getLayoutParams();
+				params.width = mControl.getWidth() / 2;
+				mControl.setLayoutParams(params);
+			}
+		});
+
+		assertTrue("The panels were not translated by the transition", translated[0]);
+		assertEquals(VisibilityState.MIDDLE_AND_RIGHT_VISIBLE, mControl.getVisibityState());
+		assertFalse(hasTranslatedPane());
+	}
+
+	private boolean hasTranslatedPane() {
+
+		View[] panes = { mControl.getLeftView(), mControl.getMiddleView(), mControl.getRightView() };
+
+		for (View pane : panes) {
+
+			if (pane.getTranslationX() != 0) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+}
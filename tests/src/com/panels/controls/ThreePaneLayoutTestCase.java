@@ -0,0 +1,78 @@
+package com.panels.controls;
+
+import android.app.Activity;
+import android.view.View;
+
+import com.panels.controls.ThreePaneLayout.VisibilityState;
+
+/**
+ * <p>Base class of the tests that drive a {@link ThreePaneLayout} attached to a window.</p>
+ *
+ * <p>The panels of the control are plain views. The control shows up to two panels, whatever the width of
+ * the device, until a test selects another number with {@link #setMaxVisiblePanes(int)}. It starts in
+ * {@link VisibilityState#LEFT_AND_MIDDLE_VISIBLE}.</p>
+ *
+ * @author Diego Palomar <dfpalomar@gmail.com>
+ *
+ */
+public abstract class ThreePaneLayoutTestCase extends ControlTestCase {
+
+	protected ThreePaneLayout mControl;
+
+	@Override
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		mControl = attachControl(new ControlFactory<ThreePaneLayout>() {
+			@Override
+			public ThreePaneLayout create(Activity activity) {
+
+				ThreePaneLayout control = new ThreePaneLayout(activity, null);
+
+				for (int i = 0; i < PaneGeometry.PANE_COUNT; i++) {
+					control.addView(new View(activity));
+				}
+
+				control.onFinishInflate();
+				control.setBreakpointPolicy(createPolicy(2));
+
+				return control;
+			}
+		});
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				mControl.setVisibilityState(VisibilityState.LEFT_AND_MIDDLE_VISIBLE, true);
+			}
+		});
+
+		assertEquals(VisibilityState.LEFT_AND_MIDDLE_VISIBLE, mControl.getVisibityState());
+	}
+
+	/**
+	 * Changes the number of panels that the control can show at the same time, whatever the width of the
+	 * device, and waits until the control has been laid out again
+	 *
+	 * @param maxVisiblePanes   1, 2 or 3
+	 */
+	protected void setMaxVisiblePanes(final int maxVisiblePanes) {
+
+		runOnMainSync(new Runnable() {
+			@Override
+			public void run() {
+				mControl.setBreakpointPolicy(createPolicy(maxVisiblePanes));
+			}
+		});
+
+		assertEquals(maxVisiblePanes, mControl.getMaxVisiblePanes());
+	}
+
+	/**
+	 * Returns a policy with a single size class that shows the given number of panels at any width
+	 */
+	private static BreakpointPolicy createPolicy(int maxVisiblePanes) {
+		return new BreakpointPolicy(new BreakpointPolicy.SizeClass(0, maxVisiblePanes,
+				PaneGeometry.MIN_PANE_WEIGHT, 0.25f, 0.35f));
+	}
+}